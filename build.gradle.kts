@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("com.vanniktech.maven.publish") version "0.34.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.binaryflavor"
@@ -92,6 +93,10 @@ tasks.test {
     useJUnitPlatform()
 }
 
+jmh {
+    jmhVersion.set("1.37")
+}
+
 tasks.register("checkVersion") {
     group = "help"
     description = "Check the current project version"
@@ -0,0 +1,140 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Compares encode/decode throughput of {@link ByteFilter} pre-filters on numeric datasets. {@code encode} also reports
+ * {@code valueBytes} and {@code encodedBytes}, whose quotient is the compression ratio of each combination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteFilterBenchmark {
+
+    private static final int ELEMENTS = 16 * 1024;
+
+    @Param({"timestamps", "random-walk", "embedding"})
+    public String dataset;
+
+    @Param({"none", "shuffle", "delta", "delta-shuffle"})
+    public String filter;
+
+    private RedisCodec<byte[], byte[]> codec;
+
+    private byte[] value;
+
+    private ByteBuffer encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        value = dataset(dataset);
+        codec = "none".equals(filter)
+            ? LZ4CompressionCodecFactory.fastest(ByteArrayCodec.INSTANCE)
+            : LZ4CompressionCodecFactory.filtered(ByteArrayCodec.INSTANCE, filter(filter, dataset));
+        encoded = codec.encodeValue(value);
+    }
+
+    @Benchmark
+    public ByteBuffer encode(Sizes sizes) {
+        ByteBuffer result = codec.encodeValue(value);
+        sizes.valueBytes += value.length;
+        sizes.encodedBytes += result.remaining();
+        return result;
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return codec.decodeValue(encoded.duplicate());
+    }
+
+    private static ByteFilter filter(String filter, String dataset) {
+        int width = "embedding".equals(dataset) ? Float.BYTES : Long.BYTES;
+        switch(filter) {
+            case "shuffle":
+                return ByteFilter.shuffle(width);
+            case "delta":
+                return ByteFilter.delta(width, ByteOrder.BIG_ENDIAN);
+            case "delta-shuffle":
+                return ByteFilter.deltaShuffle(width, ByteOrder.BIG_ENDIAN);
+            default:
+                throw new IllegalArgumentException(filter);
+        }
+    }
+
+    private static byte[] dataset(String dataset) {
+        Random random = new Random(42);
+        switch(dataset) {
+            case "timestamps": {
+                // millisecond timestamps sampled about once per second
+                ByteBuffer buffer = ByteBuffer.allocate(ELEMENTS * Long.BYTES);
+                long timestamp = 1_700_000_000_000L;
+                for(int i = 0; i < ELEMENTS; i++) {
+                    timestamp += 1000 + random.nextInt(32);
+                    buffer.putLong(timestamp);
+                }
+                return buffer.array();
+            }
+            case "random-walk": {
+                // price-like double series
+                ByteBuffer buffer = ByteBuffer.allocate(ELEMENTS * Double.BYTES);
+                double price = 100;
+                for(int i = 0; i < ELEMENTS; i++) {
+                    price += Math.round(random.nextGaussian() * 100) / 10_000.0;
+                    buffer.putDouble(price);
+                }
+                return buffer.array();
+            }
+            case "embedding": {
+                // normalized float vectors
+                ByteBuffer buffer = ByteBuffer.allocate(ELEMENTS * Float.BYTES);
+                for(int i = 0; i < ELEMENTS; i++) {
+                    buffer.putFloat((float) (random.nextGaussian() * 0.05));
+                }
+                return buffer.array();
+            }
+            default:
+                throw new IllegalArgumentException(dataset);
+        }
+    }
+
+    /**
+     * Bytes before and after encoding; {@code valueBytes / encodedBytes} is the compression ratio.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        public long valueBytes;
+
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            valueBytes = 0;
+            encodedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jpountz.lz4.LZ4Factory;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * Measures the cost {@link LZ4CompressingCodec} adds on top of {@link StringCodec} and {@link ByteArrayCodec} delegates.
+ * The {@code *Delegate} benchmarks call the delegate directly; key benchmarks of both variants are expected to match,
+ * confirming that key delegation through the final, generic codec inlines.
+ * <p>
+ * To inspect inlining decisions, run with
+ * {@code -jvmArgsAppend "-XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining"} and look for
+ * {@code LZ4CompressingCodec::encodeKey (inline)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecDelegationBenchmark {
+
+    @Param({"64", "4096"})
+    public int valueSize;
+
+    private final StringCodec stringDelegate = StringCodec.UTF8;
+
+    private final ByteArrayCodec byteArrayDelegate = ByteArrayCodec.INSTANCE;
+
+    private LZ4CompressingCodec<String, String> stringCodec;
+
+    private LZ4CompressingCodec<byte[], byte[]> byteArrayCodec;
+
+    private String stringKey;
+
+    private byte[] byteArrayKey;
+
+    private ByteBuffer encodedStringKey;
+
+    private String stringValue;
+
+    private byte[] byteArrayValue;
+
+    private ByteBuffer encodedStringValue;
+
+    private ByteBuffer encodedByteArrayValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        stringCodec = new LZ4CompressingCodec<>(stringDelegate, factory.fastCompressor(), factory.fastDecompressor());
+        byteArrayCodec = new LZ4CompressingCodec<>(byteArrayDelegate, factory.fastCompressor(), factory.fastDecompressor());
+
+        stringKey = "user:session:1234567890";
+        byteArrayKey = stringKey.getBytes(StandardCharsets.UTF_8);
+        encodedStringKey = stringDelegate.encodeKey(stringKey);
+
+        stringValue = "{\"field\":\"value\",\"count\":42}".repeat(valueSize / 28 + 1).substring(0, valueSize);
+        byteArrayValue = stringValue.getBytes(StandardCharsets.UTF_8);
+        encodedStringValue = stringCodec.encodeValue(stringValue);
+        encodedByteArrayValue = byteArrayCodec.encodeValue(byteArrayValue);
+    }
+
+    @Benchmark
+    public ByteBuffer stringEncodeKey() {
+        return stringCodec.encodeKey(stringKey);
+    }
+
+    @Benchmark
+    public ByteBuffer stringEncodeKeyDelegate() {
+        return stringDelegate.encodeKey(stringKey);
+    }
+
+    @Benchmark
+    public String stringDecodeKey() {
+        return stringCodec.decodeKey(encodedStringKey.duplicate());
+    }
+
+    @Benchmark
+    public String stringDecodeKeyDelegate() {
+        return stringDelegate.decodeKey(encodedStringKey.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer byteArrayEncodeKey() {
+        return byteArrayCodec.encodeKey(byteArrayKey);
+    }
+
+    @Benchmark
+    public ByteBuffer byteArrayEncodeKeyDelegate() {
+        return byteArrayDelegate.encodeKey(byteArrayKey);
+    }
+
+    @Benchmark
+    public ByteBuffer stringEncodeValue() {
+        return stringCodec.encodeValue(stringValue);
+    }
+
+    @Benchmark
+    public String stringDecodeValue() {
+        return stringCodec.decodeValue(encodedStringValue.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer byteArrayEncodeValue() {
+        return byteArrayCodec.encodeValue(byteArrayValue);
+    }
+
+    @Benchmark
+    public byte[] byteArrayDecodeValue() {
+        return byteArrayCodec.decodeValue(encodedByteArrayValue.duplicate());
+    }
+}
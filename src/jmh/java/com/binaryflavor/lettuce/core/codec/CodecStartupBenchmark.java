@@ -0,0 +1,85 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * Latency of the first requests in a fresh JVM, with and without {@link LZ4CodecRegistry#warmUp()} at startup.
+ * <p>
+ * Every fork measures a single invocation that obtains the codec from {@link LZ4CodecRegistry#shared()} and encodes and
+ * decodes the first {@code requests} values, like an application serving its first traffic after a deployment. Without
+ * warm-up this includes native library loading, class initialization and interpreted code. Time spent in
+ * {@code warmUp()} itself is not measured. Run with many forks for stable percentiles.
+ * <p>
+ * Example: {@code java -jar build/libs/*-jmh.jar CodecStartupBenchmark -f 20}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class CodecStartupBenchmark {
+
+    private static final RedisCodec<String, String> STRING_CODEC = RedisCodec.of(StringCodec.UTF8, StringCodec.UTF8);
+
+    @Benchmark
+    public int firstRequests(Startup startup) {
+        RedisCodec<String, String> codec = LZ4CodecRegistry.shared().fastest(STRING_CODEC);
+        int length = 0;
+        for(int i = 0; i < startup.requests; i++) {
+            ByteBuffer encoded = codec.encodeValue(startup.values[i % startup.values.length]);
+            length += codec.decodeValue(encoded).length();
+        }
+        return length;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Startup {
+
+        @Param({"false", "true"})
+        public boolean warmUp;
+
+        @Param({"1000"})
+        public int requests;
+
+        String[] values;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if(warmUp) {
+                LZ4CodecRegistry.shared().fastest(STRING_CODEC);
+                LZ4CodecRegistry.shared().warmUp();
+            }
+            SplittableRandom random = new SplittableRandom(42);
+            values = new String[16];
+            for(int i = 0; i < values.length; i++) {
+                StringBuilder sb = new StringBuilder();
+                int size = 256 << (i % 5);
+                while(sb.length() < size) {
+                    sb.append("{\"id\":").append(random.nextInt(1_000_000))
+                        .append(",\"name\":\"item-").append(random.nextInt(1000))
+                        .append("\",\"tags\":[\"a\",\"b\"],\"price\":").append(random.nextInt(10_000) / 100.0)
+                        .append('}');
+                }
+                values[i] = sb.substring(0, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+
+/**
+ * Event-loop latency of small GETs while large compressed values are read on the same event loops, with decompression on
+ * the event loop ({@code inline}) or on a {@link DecompressionOffload} executor ({@code offload}).
+ * <p>
+ * The client runs {@link DefaultClientResources#MIN_IO_THREADS} event loops, each carrying one load connection that keeps
+ * {@code loadInFlight} GETs of a {@code valueSize} document in flight. The benchmark thread measures GETs of a small value
+ * on its own connection, which shares one of these event loops. Reported metrics:
+ * <ul>
+ * <li>{@code SampleTime}: small GET latency percentiles; the tail shows how long the event loop was blocked.</li>
+ * <li>{@code loadGets}: large GETs completed per second, to check the offload keeps up with the event loop.</li>
+ * </ul>
+ * Example: {@code java -jar build/libs/*-jmh.jar DecompressionOffloadBenchmark -p valueSize=8388608}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(1)
+public class DecompressionOffloadBenchmark {
+
+    private static final String SMALL_KEY = "bench:small";
+
+    private static final String LARGE_KEY = "bench:large";
+
+    @Benchmark
+    public String smallGet(Load load, Traffic traffic) throws Exception {
+        traffic.loadGets += load.completed.getAndSet(0);
+        return load.probe.get(SMALL_KEY).get(10, TimeUnit.SECONDS);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Load {
+
+        @Param({"inline", "offload"})
+        public String mode;
+
+        @Param({"1048576", "8388608"})
+        public int valueSize;
+
+        @Param({"4"})
+        public int loadInFlight;
+
+        @Param({"2"})
+        public int offloadThreads;
+
+        InProcessRedisServer server;
+
+        ClientResources resources;
+
+        RedisClient redisClient;
+
+        ExecutorService executor;
+
+        RedisAsyncCommands<String, String> probe;
+
+        final AtomicLong completed = new AtomicLong();
+
+        private final List<StatefulRedisConnection<String, String>> connections = new ArrayList<>();
+
+        private final List<Thread> loadThreads = new ArrayList<>();
+
+        private volatile boolean running = true;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            server = InProcessRedisServer.start();
+            resources = DefaultClientResources.builder().ioThreadPoolSize(DefaultClientResources.MIN_IO_THREADS).build();
+            redisClient = RedisClient.create(resources, server.uri());
+            executor = Executors.newFixedThreadPool(offloadThreads);
+
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.fastest(
+                RedisCodec.of(StringCodec.UTF8, StringCodec.UTF8));
+            DecompressionOffload<String, String> offload = DecompressionOffload.builder(codec, executor).build();
+            boolean offloading = mode.equals("offload");
+
+            try(StatefulRedisConnection<String, String> connection = redisClient.connect(codec)) {
+                connection.sync().set(SMALL_KEY, "small");
+                connection.sync().set(LARGE_KEY, document(valueSize));
+            }
+
+            // connections are assigned to event loops round-robin, one load connection per event loop
+            for(int i = 0; i < DefaultClientResources.MIN_IO_THREADS; i++) {
+                StatefulRedisConnection<String, String> connection = redisClient.connect(offloading ? offload.codec() : codec);
+                connections.add(connection);
+                RedisAsyncCommands<String, String> async = offloading ? offload.wrap(connection.async()) : connection.async();
+                Thread thread = new Thread(() -> load(async), "offload-benchmark-load");
+                thread.setDaemon(true);
+                loadThreads.add(thread);
+            }
+            StatefulRedisConnection<String, String> connection = redisClient.connect(offloading ? offload.codec() : codec);
+            connections.add(connection);
+            probe = offloading ? offload.wrap(connection.async()) : connection.async();
+
+            loadThreads.forEach(Thread::start);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            running = false;
+            for(Thread thread : loadThreads) {
+                thread.join(10_000);
+            }
+            connections.forEach(StatefulRedisConnection::close);
+            redisClient.shutdown(0, 2, TimeUnit.SECONDS);
+            resources.shutdown(0, 2, TimeUnit.SECONDS).get();
+            executor.shutdownNow();
+            server.close();
+        }
+
+        private void load(RedisAsyncCommands<String, String> async) {
+            Semaphore inFlight = new Semaphore(loadInFlight);
+            try {
+                while(running) {
+                    if(!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        continue;
+                    }
+                    async.get(LARGE_KEY).whenComplete((value, error) -> {
+                        completed.incrementAndGet();
+                        inFlight.release();
+                    });
+                }
+                inFlight.tryAcquire(loadInFlight, 10, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static String document(int size) {
+            SplittableRandom random = new SplittableRandom(42);
+            StringBuilder sb = new StringBuilder(size + 64);
+            while(sb.length() < size) {
+                sb.append("{\"id\":").append(random.nextInt(1_000_000))
+                    .append(",\"name\":\"item-").append(random.nextInt(1000))
+                    .append("\",\"tags\":[\"a\",\"b\"],\"price\":").append(random.nextInt(10_000) / 100.0)
+                    .append('}');
+            }
+            return sb.substring(0, size);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Traffic {
+
+        public long loadGets;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            loadGets = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures dictionary compression of small JSON values, where the per-call cost of the compressor's hash table weighs
+ * most. Run with {@code -prof gc} to see the allocation per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionaryCompressionBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int valueSize;
+
+    private LZ4Dictionary dictionary;
+
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dictionary = LZ4Dictionary.of(1, json(8192, new Random(1)));
+        value = json(valueSize, new Random(2));
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return dictionary.compress(value);
+    }
+
+    private static byte[] json(int size, Random random) {
+        StringBuilder json = new StringBuilder(size + 128);
+        while(json.length() < size) {
+            json.append("{\"id\":").append(random.nextInt(1_000_000)).append(",\"name\":\"user-")
+                .append(Integer.toHexString(random.nextInt())).append("\",\"active\":").append(random.nextBoolean())
+                .append(",\"score\":").append(random.nextInt(100)).append("},");
+        }
+        byte[] bytes = new byte[size];
+        System.arraycopy(json.toString().getBytes(StandardCharsets.UTF_8), 0, bytes, 0, size);
+        return bytes;
+    }
+}
@@ -0,0 +1,108 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compares the lz4-java native, unsafe and safe instances with {@link LZ4VectorizedEngine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LZ4EngineBenchmark {
+
+    @Param({"native", "unsafe", "safe", "vectorized"})
+    public String engine;
+
+    @Param({"256", "4096", "131072"})
+    public int valueSize;
+
+    @Param({"json", "random"})
+    public String dataset;
+
+    private LZ4Compressor compressor;
+
+    private LZ4FastDecompressor decompressor;
+
+    private byte[] value;
+
+    private byte[] compressed;
+
+    private byte[] compressBuffer;
+
+    private byte[] decompressBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch(engine) {
+            case "native":
+            case "unsafe":
+            case "safe":
+                LZ4Factory factory = "native".equals(engine) ? LZ4Factory.nativeInstance()
+                    : "unsafe".equals(engine) ? LZ4Factory.unsafeInstance() : LZ4Factory.safeInstance();
+                compressor = factory.fastCompressor();
+                decompressor = factory.fastDecompressor();
+                break;
+            case "vectorized":
+                compressor = LZ4VectorizedEngine.compressor();
+                decompressor = LZ4VectorizedEngine.fastDecompressor();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+
+        value = dataset(dataset, valueSize);
+        compressed = compressor.compress(value);
+        compressBuffer = new byte[compressor.maxCompressedLength(valueSize)];
+        decompressBuffer = new byte[valueSize];
+    }
+
+    @Benchmark
+    public int compress() {
+        return compressor.compress(value, 0, value.length, compressBuffer, 0, compressBuffer.length);
+    }
+
+    @Benchmark
+    public int decompress() {
+        return decompressor.decompress(compressed, 0, decompressBuffer, 0, decompressBuffer.length);
+    }
+
+    private static byte[] dataset(String dataset, int size) {
+        Random random = new Random(42);
+        if("random".equals(dataset)) {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            return bytes;
+        }
+        StringBuilder json = new StringBuilder(size + 128);
+        while(json.length() < size) {
+            json.append("{\"id\":").append(random.nextInt(1_000_000)).append(",\"name\":\"user-")
+                .append(Integer.toHexString(random.nextInt())).append("\",\"active\":").append(random.nextBoolean())
+                .append(",\"score\":").append(random.nextInt(100)).append("},");
+        }
+        byte[] bytes = new byte[size];
+        System.arraycopy(json.toString().getBytes(StandardCharsets.UTF_8), 0, bytes, 0, size);
+        return bytes;
+    }
+}
@@ -0,0 +1,285 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * End-to-end throughput of real Lettuce connections using the codecs of {@link LZ4CompressionCodecFactory} against the
+ * in-process RESP stand-in server.
+ * <p>
+ * Each invocation sends one pipeline of {@code pipelineDepth} commands drawn from the {@code mix} and waits for all
+ * replies. Every JMH thread uses its own connection, so concurrency is set with {@code -t}. Reported metrics:
+ * <ul>
+ * <li>{@code pipeline}: pipelines per second; the {@code commands} counter gives commands per second.</li>
+ * <li>{@code pipelineLatency}: pipeline latency percentiles in microseconds.</li>
+ * <li>{@code wireBytes}: value bytes sent and received per second, after compression.</li>
+ * <li>Allocation rate: run with {@code -prof gc}. The rate is JVM-wide and includes the stand-in server.</li>
+ * </ul>
+ * Example: {@code java -jar build/libs/*-jmh.jar PipelineThroughputBenchmark -t 4 -p mix=mixed -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(4)
+public class PipelineThroughputBenchmark {
+
+    private static final int MGET_KEYS = 10;
+
+    @Benchmark
+    public void pipeline(Server server, Client client, Traffic traffic) {
+        traffic.commands += client.pipeline(server);
+        traffic.wireBytes += client.codec.drainBytes();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void pipelineLatency(Server server, Client client) {
+        client.pipeline(server);
+        client.codec.drainBytes();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"raw", "fastest", "hc-9"})
+        public String codec;
+
+        @Param({"1024", "65536"})
+        public int valueSize;
+
+        @Param({"1000"})
+        public int keyCount;
+
+        InProcessRedisServer server;
+
+        RedisClient redisClient;
+
+        String[] keys;
+
+        byte[] value;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            server = InProcessRedisServer.start();
+            redisClient = RedisClient.create(server.uri());
+
+            keys = new String[keyCount];
+            for(int i = 0; i < keyCount; i++) {
+                keys[i] = "bench:" + i;
+            }
+            value = document(valueSize);
+
+            try(StatefulRedisConnection<String, byte[]> connection = redisClient.connect(valueCodec(codec))) {
+                for(String key : keys) {
+                    connection.sync().set(key, value);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            redisClient.shutdown(0, 2, TimeUnit.SECONDS);
+            server.close();
+        }
+
+        private static byte[] document(int size) {
+            SplittableRandom random = new SplittableRandom(42);
+            StringBuilder sb = new StringBuilder(size + 64);
+            while(sb.length() < size) {
+                sb.append("{\"id\":").append(random.nextInt(1_000_000))
+                    .append(",\"name\":\"item-").append(random.nextInt(1000))
+                    .append("\",\"tags\":[\"a\",\"b\"],\"price\":").append(random.nextInt(10_000) / 100.0)
+                    .append('}');
+            }
+            return sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        /**
+         * {@code get}, {@code set}, {@code mget} or {@code mixed} (80% GET, 15% SET, 5% MGET).
+         */
+        @Param({"get", "set", "mget", "mixed"})
+        public String mix;
+
+        @Param({"1", "16", "128"})
+        public int pipelineDepth;
+
+        StatefulRedisConnection<String, byte[]> connection;
+
+        RedisAsyncCommands<String, byte[]> async;
+
+        ByteCountingCodec codec;
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) {
+            codec = new ByteCountingCodec(valueCodec(server.codec));
+            connection = server.redisClient.connect(codec);
+            connection.setAutoFlushCommands(false);
+            async = connection.async();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            connection.close();
+        }
+
+        /**
+         * Sends one pipeline of {@code pipelineDepth} commands and waits for all replies.
+         *
+         * @return Number of commands sent.
+         */
+        int pipeline(Server server) {
+            RedisFuture<?>[] futures = new RedisFuture<?>[pipelineDepth];
+            for(int i = 0; i < futures.length; i++) {
+                futures[i] = next(server);
+            }
+            connection.flushCommands();
+
+            if(!LettuceFutures.awaitAll(10, TimeUnit.SECONDS, futures)) {
+                throw new IllegalStateException("Pipeline timed out");
+            }
+            return futures.length;
+        }
+
+        private RedisFuture<?> next(Server server) {
+            String[] keys = server.keys;
+            switch(mix) {
+                case "get":
+                    return async.get(keys[random.nextInt(keys.length)]);
+                case "set":
+                    return async.set(keys[random.nextInt(keys.length)], server.value);
+                case "mget":
+                    return mget(keys);
+                default:
+                    int draw = random.nextInt(100);
+                    if(draw < 80) {
+                        return async.get(keys[random.nextInt(keys.length)]);
+                    }
+                    if(draw < 95) {
+                        return async.set(keys[random.nextInt(keys.length)], server.value);
+                    }
+                    return mget(keys);
+            }
+        }
+
+        private RedisFuture<?> mget(String[] keys) {
+            String[] batch = new String[MGET_KEYS];
+            for(int i = 0; i < batch.length; i++) {
+                batch[i] = keys[random.nextInt(keys.length)];
+            }
+            return async.mget(batch);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Traffic {
+
+        public long commands;
+
+        public long wireBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            commands = 0;
+            wireBytes = 0;
+        }
+    }
+
+    static RedisCodec<String, byte[]> valueCodec(String name) {
+        RedisCodec<String, byte[]> raw = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+        switch(name) {
+            case "raw":
+                return raw;
+            case "fastest":
+                return LZ4CompressionCodecFactory.fastest(raw);
+            case "safest":
+                return LZ4CompressionCodecFactory.safest(raw);
+            case "unsafe":
+                return LZ4CompressionCodecFactory.unsafeInstance(raw);
+            default:
+                if(name.startsWith("hc-")) {
+                    return LZ4CompressionCodecFactory.highCompression(raw, Integer.parseInt(name.substring(3)));
+                }
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    /**
+     * Counts value bytes crossing the codec, i.e. the value payload on the wire. Values are decoded on the event loop, so
+     * the count is kept in an atomic and drained by the benchmark thread.
+     */
+    static final class ByteCountingCodec implements RedisCodec<String, byte[]> {
+
+        private final RedisCodec<String, byte[]> delegate;
+        private final AtomicLong bytes = new AtomicLong();
+
+        ByteCountingCodec(RedisCodec<String, byte[]> delegate) {
+            this.delegate = delegate;
+        }
+
+        long drainBytes() {
+            return bytes.getAndSet(0);
+        }
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return delegate.decodeKey(bytes);
+        }
+
+        @Override
+        public byte[] decodeValue(ByteBuffer bytes) {
+            this.bytes.addAndGet(bytes.remaining());
+            return delegate.decodeValue(bytes);
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return delegate.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(byte[] value) {
+            ByteBuffer encoded = delegate.encodeValue(value);
+            bytes.addAndGet(encoded.remaining());
+            return encoded;
+        }
+    }
+}
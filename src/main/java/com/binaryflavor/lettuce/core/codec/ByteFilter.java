@@ -0,0 +1,293 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Reversible pre-filter applied to encoded values before LZ4 compression, improving the ratio of numeric arrays such as
+ * {@code long[]}, {@code float[]} or {@code double[]} vectors.
+ * <p>
+ * <ul>
+ * <li><b>Delta</b> replaces each element by its difference to the previous element, interpreting elements as integers of
+ * the declared width and byte order. Slowly changing series turn into runs of small numbers.</li>
+ * <li><b>Shuffle</b> (as in Blosc) groups the first byte of every element, then the second byte and so on. Bytes of the
+ * same significance tend to be similar, so the shuffled array contains longer repeated sequences.</li>
+ * </ul>
+ * When both are enabled, delta encoding runs first. Trailing bytes that do not form a whole element are kept as-is. The
+ * filter is recorded in the value header, so any {@link LZ4CompressingCodec} can decode filtered values.
+ * <p>
+ * Both transforms are written as simple strided loops over {@code byte[]} and array views, which the JIT compiles to
+ * vectorized code where the platform supports it.
+ */
+public final class ByteFilter {
+
+    static final int SERIALIZED_SIZE = 2;
+
+    private static final int DELTA = 0x01;
+
+    private static final int SHUFFLE = 0x02;
+
+    private static final int LITTLE_ENDIAN = 0x04;
+
+    private static final int KNOWN_MODES = DELTA | SHUFFLE | LITTLE_ENDIAN;
+
+    private static final VarHandle SHORT_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle SHORT_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle INT_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle INT_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle LONG_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle LONG_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int mode;
+    private final int elementWidth;
+
+    private ByteFilter(int mode, int elementWidth) {
+        this.mode = mode;
+        this.elementWidth = elementWidth;
+    }
+
+    /**
+     * Creates a byte-shuffle filter.
+     *
+     * @param elementWidth element width in bytes, between {@code 1} and {@code 255}; e.g. {@code 8} for {@code double[]}.
+     * @return Shuffle filter.
+     */
+    public static ByteFilter shuffle(int elementWidth) {
+        LettuceAssert.isTrue(elementWidth >= 1 && elementWidth <= 255, "Element width must be between 1 and 255");
+        return new ByteFilter(SHUFFLE, elementWidth);
+    }
+
+    /**
+     * Creates a delta filter.
+     *
+     * @param elementWidth element width in bytes, one of {@code 1}, {@code 2}, {@code 4} or {@code 8}.
+     * @param order        byte order the delegate codec writes elements in, must not be {@code null}.
+     * @return Delta filter.
+     */
+    public static ByteFilter delta(int elementWidth, ByteOrder order) {
+        return new ByteFilter(deltaMode(elementWidth, order), elementWidth);
+    }
+
+    /**
+     * Creates a filter applying delta encoding followed by byte shuffling.
+     *
+     * @param elementWidth element width in bytes, one of {@code 1}, {@code 2}, {@code 4} or {@code 8}.
+     * @param order        byte order the delegate codec writes elements in, must not be {@code null}.
+     * @return Delta and shuffle filter.
+     */
+    public static ByteFilter deltaShuffle(int elementWidth, ByteOrder order) {
+        return new ByteFilter(deltaMode(elementWidth, order) | SHUFFLE, elementWidth);
+    }
+
+    private static int deltaMode(int elementWidth, ByteOrder order) {
+        LettuceAssert.isTrue(elementWidth == 1 || elementWidth == 2 || elementWidth == 4 || elementWidth == 8,
+            "Element width must be 1, 2, 4 or 8 for delta encoding");
+        LettuceAssert.notNull(order, "ByteOrder must not be null");
+        return DELTA | (order == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : 0);
+    }
+
+    static ByteFilter read(ByteBuffer buffer) {
+        int mode = buffer.get() & 0xFF;
+        int elementWidth = buffer.get() & 0xFF;
+        if((mode & ~KNOWN_MODES) != 0 || (mode & (DELTA | SHUFFLE)) == 0 || elementWidth == 0) {
+            throw new IllegalArgumentException("Unsupported filter: " + mode + "/" + elementWidth);
+        }
+        if((mode & DELTA) != 0 && elementWidth != 1 && elementWidth != 2 && elementWidth != 4 && elementWidth != 8) {
+            throw new IllegalArgumentException("Unsupported delta element width: " + elementWidth);
+        }
+        return new ByteFilter(mode, elementWidth);
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.put((byte) mode);
+        buffer.put((byte) elementWidth);
+    }
+
+    /**
+     * @return Element width in bytes.
+     */
+    public int elementWidth() {
+        return elementWidth;
+    }
+
+    byte[] apply(byte[] data) {
+        byte[] result = data;
+        if((mode & DELTA) != 0) {
+            result = new byte[data.length];
+            deltaEncode(data, result);
+        }
+        if((mode & SHUFFLE) != 0) {
+            byte[] shuffled = new byte[result.length];
+            shuffle(result, shuffled);
+            result = shuffled;
+        }
+        return result;
+    }
+
+    byte[] reverse(byte[] data) {
+        byte[] result = data;
+        if((mode & SHUFFLE) != 0) {
+            result = new byte[data.length];
+            unshuffle(data, result);
+        }
+        if((mode & DELTA) != 0) {
+            // safe in place: each element only depends on the already decoded previous element
+            deltaDecode(result);
+        }
+        return result;
+    }
+
+    private void shuffle(byte[] src, byte[] dst) {
+        int elements = src.length / elementWidth;
+        for(int b = 0; b < elementWidth; b++) {
+            int offset = b * elements;
+            for(int i = 0; i < elements; i++) {
+                dst[offset + i] = src[i * elementWidth + b];
+            }
+        }
+        copyTrailing(src, dst, elements);
+    }
+
+    private void unshuffle(byte[] src, byte[] dst) {
+        int elements = src.length / elementWidth;
+        for(int b = 0; b < elementWidth; b++) {
+            int offset = b * elements;
+            for(int i = 0; i < elements; i++) {
+                dst[i * elementWidth + b] = src[offset + i];
+            }
+        }
+        copyTrailing(src, dst, elements);
+    }
+
+    private void copyTrailing(byte[] src, byte[] dst, int elements) {
+        int wholeLength = elements * elementWidth;
+        System.arraycopy(src, wholeLength, dst, wholeLength, src.length - wholeLength);
+    }
+
+    private void deltaEncode(byte[] src, byte[] dst) {
+        boolean littleEndian = (mode & LITTLE_ENDIAN) != 0;
+        int wholeLength = src.length - src.length % elementWidth;
+        switch(elementWidth) {
+            case 1: {
+                byte previous = 0;
+                for(int i = 0; i < wholeLength; i++) {
+                    byte value = src[i];
+                    dst[i] = (byte) (value - previous);
+                    previous = value;
+                }
+                break;
+            }
+            case 2: {
+                VarHandle view = littleEndian ? SHORT_LITTLE_ENDIAN : SHORT_BIG_ENDIAN;
+                short previous = 0;
+                for(int i = 0; i < wholeLength; i += 2) {
+                    short value = (short) view.get(src, i);
+                    view.set(dst, i, (short) (value - previous));
+                    previous = value;
+                }
+                break;
+            }
+            case 4: {
+                VarHandle view = littleEndian ? INT_LITTLE_ENDIAN : INT_BIG_ENDIAN;
+                int previous = 0;
+                for(int i = 0; i < wholeLength; i += 4) {
+                    int value = (int) view.get(src, i);
+                    view.set(dst, i, value - previous);
+                    previous = value;
+                }
+                break;
+            }
+            default: {
+                VarHandle view = littleEndian ? LONG_LITTLE_ENDIAN : LONG_BIG_ENDIAN;
+                long previous = 0;
+                for(int i = 0; i < wholeLength; i += 8) {
+                    long value = (long) view.get(src, i);
+                    view.set(dst, i, value - previous);
+                    previous = value;
+                }
+                break;
+            }
+        }
+        System.arraycopy(src, wholeLength, dst, wholeLength, src.length - wholeLength);
+    }
+
+    private void deltaDecode(byte[] data) {
+        boolean littleEndian = (mode & LITTLE_ENDIAN) != 0;
+        int wholeLength = data.length - data.length % elementWidth;
+        switch(elementWidth) {
+            case 1: {
+                byte sum = 0;
+                for(int i = 0; i < wholeLength; i++) {
+                    sum += data[i];
+                    data[i] = sum;
+                }
+                break;
+            }
+            case 2: {
+                VarHandle view = littleEndian ? SHORT_LITTLE_ENDIAN : SHORT_BIG_ENDIAN;
+                short sum = 0;
+                for(int i = 0; i < wholeLength; i += 2) {
+                    sum += (short) view.get(data, i);
+                    view.set(data, i, sum);
+                }
+                break;
+            }
+            case 4: {
+                VarHandle view = littleEndian ? INT_LITTLE_ENDIAN : INT_BIG_ENDIAN;
+                int sum = 0;
+                for(int i = 0; i < wholeLength; i += 4) {
+                    sum += (int) view.get(data, i);
+                    view.set(data, i, sum);
+                }
+                break;
+            }
+            default: {
+                VarHandle view = littleEndian ? LONG_LITTLE_ENDIAN : LONG_BIG_ENDIAN;
+                long sum = 0;
+                for(int i = 0; i < wholeLength; i += 8) {
+                    sum += (long) view.get(data, i);
+                    view.set(data, i, sum);
+                }
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof ByteFilter)) {
+            return false;
+        }
+        ByteFilter that = (ByteFilter) o;
+        return mode == that.mode && elementWidth == that.elementWidth;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mode + elementWidth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ByteFilter[");
+        if((mode & DELTA) != 0) {
+            sb.append("delta(").append((mode & LITTLE_ENDIAN) != 0 ? "LE" : "BE").append(')');
+        }
+        if((mode & SHUFFLE) != 0) {
+            sb.append((mode & DELTA) != 0 ? "+" : "").append("shuffle");
+        }
+        return sb.append(", width=").append(elementWidth).append(']').toString();
+    }
+}
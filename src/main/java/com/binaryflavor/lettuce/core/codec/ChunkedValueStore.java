@@ -0,0 +1,475 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Stores large values as a manifest plus fixed-size chunks under derived keys, so that no single command has to transfer
+ * the whole value.
+ * <p>
+ * Values are encoded with the configured codec, typically one created by {@link LZ4CompressionCodecFactory}. Encoded
+ * values up to {@code chunkSize} bytes are stored inline in the manifest. Larger values are split into chunks stored under
+ * {@code <key>:chunk:<generation>:<index>}; chunks are written and read with up to {@code maxInFlightChunks} commands in
+ * flight, which Lettuce pipelines on the connection. The manifest under the key itself is replaced with {@code SET ... GET}
+ * after all chunks were written, after which the chunks of the replaced value are deleted. If writing a chunk fails, the
+ * chunks of the new generation are deleted and the previous value stays in place. Readers racing with a writer
+ * re-read the manifest when chunks of the generation they observed disappear. Values are decoded on the
+ * {@link Builder#decodeExecutor(Executor) decode executor}, never on the event loop completing the last read.
+ * <p>
+ * By default chunk keys share the hash slot of the key: through the hash tag of the key, by wrapping the key in one, or,
+ * for keys containing a {@code '}'} outside a hash tag, through a generated hash tag of the same slot. With
+ * {@code spreadAcrossSlots} chunk keys are hashed individually, spreading chunks across Redis Cluster nodes.
+ * <p>
+ * Keys holding a value that is not a manifest are decoded with the codec directly, so values written through a regular
+ * connection using the same codec are readable. The reverse does not hold: every value written by the store, including
+ * small values stored inline, is a manifest that a regular connection using the codec can't decode.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class ChunkedValueStore<K, V> {
+
+    private static final byte[] MAGIC = {'L', 'Z', '4', 'C'};
+
+    private static final byte VERSION = 1;
+
+    private static final byte FLAG_SPREAD_ACROSS_SLOTS = 1;
+
+    private static final byte FLAG_SLOT_TAG = 2;
+
+    private static final int MANIFEST_HEADER_SIZE = MAGIC.length + 2 + Long.BYTES + 3 * Integer.BYTES;
+
+    private static final int DELETE_BATCH_SIZE = 256;
+
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+    private final RedisCodec<K, V> codec;
+    private final int chunkSize;
+    private final int maxInFlightChunks;
+    private final boolean spreadAcrossSlots;
+    private final Executor decodeExecutor;
+
+    private ChunkedValueStore(Builder<K, V> builder) {
+        this.commands = builder.commands;
+        this.codec = builder.codec;
+        this.chunkSize = builder.chunkSize;
+        this.maxInFlightChunks = builder.maxInFlightChunks;
+        this.spreadAcrossSlots = builder.spreadAcrossSlots;
+        this.decodeExecutor = builder.decodeExecutor;
+    }
+
+    /**
+     * Creates a builder for a store writing through {@code commands}.
+     *
+     * @param commands asynchronous commands of a connection using {@code ByteArrayCodec}, must not be {@code null}.
+     * @param codec    codec encoding keys and values, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return a new {@link Builder}.
+     */
+    public static <K, V> Builder<K, V> builder(RedisClusterAsyncCommands<byte[], byte[]> commands, RedisCodec<K, V> codec) {
+        LettuceAssert.notNull(commands, "Commands must not be null");
+        LettuceAssert.notNull(codec, "RedisCodec must not be null");
+        return new Builder<>(commands, codec);
+    }
+
+    /**
+     * Stores {@code value} under {@code key}, replacing any previous value.
+     *
+     * @param key   key, must not be {@code null}.
+     * @param value value.
+     * @return Future completed once the manifest was written and the chunks of the replaced value were deleted.
+     */
+    public CompletableFuture<Void> set(K key, V value) {
+        LettuceAssert.notNull(key, "Key must not be null");
+
+        byte[] keyBytes = toArray(codec.encodeKey(key));
+        ByteBuffer encoded = codec.encodeValue(value);
+        int length = encoded.remaining();
+
+        if(length <= chunkSize) {
+            Manifest manifest = new Manifest(0, length, chunkSize, 0, spreadAcrossSlots, false);
+            return replaceManifest(keyBytes, manifest.toBytes(encoded));
+        }
+
+        int chunkCount = (int) (((long) length + chunkSize - 1) / chunkSize);
+        boolean slotTag = !spreadAcrossSlots && !hasHashTag(keyBytes) && contains(keyBytes, (byte) '}');
+        Manifest manifest = new Manifest(ThreadLocalRandom.current().nextLong(), length, chunkSize, chunkCount,
+            spreadAcrossSlots, slotTag);
+
+        return forEach(chunkCount, index -> {
+            ByteBuffer source = encoded.duplicate();
+            source.position(source.position() + index * chunkSize);
+            byte[] chunk = new byte[Math.min(chunkSize, source.remaining())];
+            source.get(chunk);
+            return commands.set(manifest.chunkKey(keyBytes, index), chunk);
+        }).handle((ignored, failure) -> failure == null ? replaceManifest(keyBytes, manifest.toBytes(null))
+            : discardChunks(keyBytes, manifest, failure)).thenCompose(Function.identity());
+    }
+
+    /**
+     * Reads the value stored under {@code key}.
+     *
+     * @param key key, must not be {@code null}.
+     * @return Future completed on the decode executor with the decoded value, or {@code null} if the key does not exist.
+     */
+    public CompletableFuture<V> get(K key) {
+        LettuceAssert.notNull(key, "Key must not be null");
+        return read(toArray(codec.encodeKey(key)), MAX_READ_ATTEMPTS)
+            .thenApplyAsync(encoded -> encoded == null ? null : codec.decodeValue(encoded), decodeExecutor);
+    }
+
+    /**
+     * Deletes the value stored under {@code key} together with its chunks. The manifest is read and deleted in one
+     * {@code GETDEL}, which requires Redis 6.2 or later.
+     *
+     * @param key key, must not be {@code null}.
+     * @return Future completed with {@code true} if the key existed.
+     */
+    public CompletableFuture<Boolean> delete(K key) {
+        LettuceAssert.notNull(key, "Key must not be null");
+
+        byte[] keyBytes = toArray(codec.encodeKey(key));
+        return commands.getdel(keyBytes).toCompletableFuture()
+            .thenCompose(stored -> deleteChunks(keyBytes, Manifest.parse(stored)).thenApply(ignored -> stored != null));
+    }
+
+    private CompletableFuture<Void> replaceManifest(byte[] keyBytes, byte[] manifest) {
+        return commands.setGet(keyBytes, manifest).toCompletableFuture()
+            .thenCompose(previous -> deleteChunks(keyBytes, Manifest.parse(previous)));
+    }
+
+    /**
+     * Deletes the chunks of a generation whose manifest was never written, then fails with {@code failure}.
+     */
+    private CompletableFuture<Void> discardChunks(byte[] keyBytes, Manifest manifest, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause()
+            : failure;
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        deleteChunks(keyBytes, manifest).whenComplete((ignored, cleanupFailure) -> {
+            if(cleanupFailure != null) {
+                cause.addSuppressed(cleanupFailure);
+            }
+            failed.completeExceptionally(cause);
+        });
+        return failed;
+    }
+
+    private CompletableFuture<Void> deleteChunks(byte[] keyBytes, Manifest manifest) {
+        if(manifest == null || manifest.chunkCount == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int batches = (manifest.chunkCount + DELETE_BATCH_SIZE - 1) / DELETE_BATCH_SIZE;
+        return forEach(batches, batch -> {
+            int from = batch * DELETE_BATCH_SIZE;
+            byte[][] chunkKeys = new byte[Math.min(DELETE_BATCH_SIZE, manifest.chunkCount - from)][];
+            for(int i = 0; i < chunkKeys.length; i++) {
+                chunkKeys[i] = manifest.chunkKey(keyBytes, from + i);
+            }
+            return commands.del(chunkKeys);
+        });
+    }
+
+    /**
+     * Reads the encoded value stored under {@code keyBytes}, leaving decoding to the caller.
+     */
+    private CompletableFuture<ByteBuffer> read(byte[] keyBytes, int attempts) {
+        return commands.get(keyBytes).toCompletableFuture().thenCompose(stored -> {
+            if(stored == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            Manifest manifest = Manifest.parse(stored);
+            if(manifest == null) {
+                return CompletableFuture.completedFuture(ByteBuffer.wrap(stored));
+            }
+            if(manifest.chunkCount == 0) {
+                return CompletableFuture.completedFuture(ByteBuffer.wrap(stored, MANIFEST_HEADER_SIZE, manifest.totalLength));
+            }
+
+            byte[] assembled = new byte[manifest.totalLength];
+            AtomicBoolean incomplete = new AtomicBoolean();
+            return forEach(manifest.chunkCount, index -> commands.get(manifest.chunkKey(keyBytes, index)).thenAccept(chunk -> {
+                int offset = index * manifest.chunkSize;
+                if(chunk == null || chunk.length != Math.min(manifest.chunkSize, manifest.totalLength - offset)) {
+                    incomplete.set(true);
+                } else {
+                    System.arraycopy(chunk, 0, assembled, offset, chunk.length);
+                }
+            })).thenCompose(ignored -> {
+                if(!incomplete.get()) {
+                    return CompletableFuture.completedFuture(ByteBuffer.wrap(assembled));
+                }
+                if(attempts > 1) {
+                    return read(keyBytes, attempts - 1);
+                }
+                CompletableFuture<ByteBuffer> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new RuntimeException("Chunked value is incomplete"));
+                return failed;
+            });
+        });
+    }
+
+    /**
+     * Runs {@code operation} for every index in {@code [0, count)} with at most {@code maxInFlightChunks} operations
+     * outstanding at a time.
+     */
+    private CompletableFuture<Void> forEach(int count, IntFunction<? extends CompletionStage<?>> operation) {
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(count, maxInFlightChunks)];
+        for(int i = 0; i < lanes.length; i++) {
+            lanes[i] = runLane(next, count, operation);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    private CompletableFuture<Void> runLane(AtomicInteger next, int count, IntFunction<? extends CompletionStage<?>> operation) {
+        int index = next.getAndIncrement();
+        if(index >= count) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return operation.apply(index).toCompletableFuture().thenCompose(ignored -> runLane(next, count, operation));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static boolean contains(byte[] bytes, byte value) {
+        for(byte b : bytes) {
+            if(b == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether {@code key} contains a non-empty Redis Cluster hash tag: a {@code '{'} followed by a {@code '}'}
+     * with at least one byte in between, where only the first {@code '{'} and the first {@code '}'} after it count.
+     */
+    static boolean hasHashTag(byte[] key) {
+        for(int start = 0; start < key.length; start++) {
+            if(key[start] == '{') {
+                for(int end = start + 1; end < key.length; end++) {
+                    if(key[end] == '}') {
+                        return end > start + 1;
+                    }
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Manifest layout: {@code [magic "LZ4C"][version][flags][long generation][int totalLength][int chunkSize][int chunkCount]}
+     * followed by the encoded value if {@code chunkCount} is {@code 0}. Flags record how chunk keys were derived.
+     */
+    static final class Manifest {
+
+        final long generation;
+        final int totalLength;
+        final int chunkSize;
+        final int chunkCount;
+        final boolean spreadAcrossSlots;
+        final boolean slotTag;
+
+        Manifest(long generation, int totalLength, int chunkSize, int chunkCount, boolean spreadAcrossSlots,
+            boolean slotTag) {
+            this.generation = generation;
+            this.totalLength = totalLength;
+            this.chunkSize = chunkSize;
+            this.chunkCount = chunkCount;
+            this.spreadAcrossSlots = spreadAcrossSlots;
+            this.slotTag = slotTag;
+        }
+
+        static Manifest parse(byte[] stored) {
+            if(stored == null || stored.length < MANIFEST_HEADER_SIZE) {
+                return null;
+            }
+            for(int i = 0; i < MAGIC.length; i++) {
+                if(stored[i] != MAGIC[i]) {
+                    return null;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(stored, MAGIC.length, MANIFEST_HEADER_SIZE - MAGIC.length);
+            if(buffer.get() != VERSION) {
+                return null;
+            }
+            byte flags = buffer.get();
+            long generation = buffer.getLong();
+            int totalLength = buffer.getInt();
+            int chunkSize = buffer.getInt();
+            int chunkCount = buffer.getInt();
+            if(chunkCount == 0 && stored.length != MANIFEST_HEADER_SIZE + totalLength) {
+                return null;
+            }
+            return new Manifest(generation, totalLength, chunkSize, chunkCount, (flags & FLAG_SPREAD_ACROSS_SLOTS) != 0,
+                (flags & FLAG_SLOT_TAG) != 0);
+        }
+
+        byte[] toBytes(ByteBuffer inline) {
+            ByteBuffer buffer = ByteBuffer.allocate(MANIFEST_HEADER_SIZE + (inline == null ? 0 : inline.remaining()));
+            buffer.put(MAGIC);
+            buffer.put(VERSION);
+            buffer.put((byte) ((spreadAcrossSlots ? FLAG_SPREAD_ACROSS_SLOTS : 0) | (slotTag ? FLAG_SLOT_TAG : 0)));
+            buffer.putLong(generation);
+            buffer.putInt(totalLength);
+            buffer.putInt(chunkSize);
+            buffer.putInt(chunkCount);
+            if(inline != null) {
+                buffer.put(inline);
+            }
+            return buffer.array();
+        }
+
+        byte[] chunkKey(byte[] key, int index) {
+            byte[] suffix = (":chunk:" + Long.toHexString(generation) + ":" + index).getBytes(StandardCharsets.US_ASCII);
+
+            byte[] prefix;
+            byte[] postfix;
+            if(spreadAcrossSlots) {
+                // an empty hash tag makes Redis hash the whole key
+                prefix = new byte[] {'{', '}'};
+                postfix = new byte[0];
+            } else if(slotTag) {
+                // Redis hashes the whole key, which can't be wrapped in a hash tag as it contains '}'
+                byte[] tag = SlotTags.TAGS[SlotHash.getSlot(key)];
+                prefix = new byte[tag.length + 2];
+                prefix[0] = '{';
+                System.arraycopy(tag, 0, prefix, 1, tag.length);
+                prefix[prefix.length - 1] = '}';
+                postfix = new byte[0];
+            } else if(hasHashTag(key)) {
+                prefix = new byte[0];
+                postfix = new byte[0];
+            } else {
+                prefix = new byte[] {'{'};
+                postfix = new byte[] {'}'};
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(prefix.length + key.length + postfix.length + suffix.length);
+            buffer.put(prefix).put(key).put(postfix).put(suffix);
+            return buffer.array();
+        }
+    }
+
+    /**
+     * Shortest hash tags of every Redis Cluster slot.
+     */
+    static final class SlotTags {
+
+        static final byte[][] TAGS = new byte[SlotHash.SLOT_COUNT][];
+
+        static {
+            int found = 0;
+            for(int i = 0; found < TAGS.length; i++) {
+                byte[] tag = Integer.toString(i, Character.MAX_RADIX).getBytes(StandardCharsets.US_ASCII);
+                int slot = SlotHash.getSlot(tag);
+                if(TAGS[slot] == null) {
+                    TAGS[slot] = tag;
+                    found++;
+                }
+            }
+        }
+
+        private SlotTags() {
+        }
+    }
+
+    /**
+     * Builder for {@link ChunkedValueStore}.
+     *
+     * @param <K> Key type.
+     * @param <V> Value type.
+     */
+    public static final class Builder<K, V> {
+
+        private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+        private final RedisCodec<K, V> codec;
+        private int chunkSize = 128 * 1024;
+        private int maxInFlightChunks = 16;
+        private boolean spreadAcrossSlots;
+        private Executor decodeExecutor = ForkJoinPool.commonPool();
+
+        private Builder(RedisClusterAsyncCommands<byte[], byte[]> commands, RedisCodec<K, V> codec) {
+            this.commands = commands;
+            this.codec = codec;
+        }
+
+        /**
+         * Size of a chunk in bytes. Encoded values up to this size are stored inline. Defaults to {@code 128 KiB}.
+         *
+         * @param chunkSize chunk size, must be positive.
+         * @return {@code this}.
+         */
+        public Builder<K, V> chunkSize(int chunkSize) {
+            LettuceAssert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Maximum number of chunk commands outstanding per operation. Defaults to {@code 16}.
+         *
+         * @param maxInFlightChunks in-flight limit, must be positive.
+         * @return {@code this}.
+         */
+        public Builder<K, V> maxInFlightChunks(int maxInFlightChunks) {
+            LettuceAssert.isTrue(maxInFlightChunks > 0, "Max in-flight chunks must be greater than 0");
+            this.maxInFlightChunks = maxInFlightChunks;
+            return this;
+        }
+
+        /**
+         * Whether chunk keys are hashed individually instead of sharing the hash slot of the key. Only affects values
+         * written afterwards; readers follow the layout recorded in the manifest. Defaults to {@code false}.
+         *
+         * @param spreadAcrossSlots {@code true} to spread chunks across cluster slots.
+         * @return {@code this}.
+         */
+        public Builder<K, V> spreadAcrossSlots(boolean spreadAcrossSlots) {
+            this.spreadAcrossSlots = spreadAcrossSlots;
+            return this;
+        }
+
+        /**
+         * Executor decoding values read by {@link ChunkedValueStore#get(Object)}, so that decompressing a large value
+         * doesn't block the event loop completing the last chunk read. Defaults to {@link ForkJoinPool#commonPool()}.
+         *
+         * @param decodeExecutor executor, must not be {@code null}.
+         * @return {@code this}.
+         */
+        public Builder<K, V> decodeExecutor(Executor decodeExecutor) {
+            LettuceAssert.notNull(decodeExecutor, "Decode executor must not be null");
+            this.decodeExecutor = decodeExecutor;
+            return this;
+        }
+
+        public ChunkedValueStore<K, V> build() {
+            return new ChunkedValueStore<>(this);
+        }
+    }
+}
@@ -0,0 +1,769 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import io.lettuce.core.GeoWithin;
+import io.lettuce.core.MapScanCursor;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValueScanCursor;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.Value;
+import io.lettuce.core.ValueScanCursor;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.internal.LettuceAssert;
+import io.lettuce.core.models.stream.ClaimedMessages;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.output.StreamingChannel;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import io.lettuce.core.pubsub.api.reactive.ChannelMessage;
+import io.lettuce.core.pubsub.api.reactive.PatternMessage;
+
+/**
+ * Moves decoding of large values off the Netty event loop. With the async and reactive APIs, {@link
+ * RedisCodec#decodeValue(ByteBuffer)} runs on the event loop shared by many connections, so a few multi-megabyte
+ * decompressions stall all of them.
+ * <p>
+ * Connections use {@link #codec()}, which only copies values of at least {@link Builder#threshold(int) threshold} bytes
+ * on the event loop. Command interfaces {@link #wrap(RedisAsyncCommands) wrapped} by the offload decode these values on
+ * the configured executor before the returned {@link RedisFuture}, {@link Mono} or {@link Flux} completes. Smaller values
+ * are decoded on the event loop as before, and results without large values complete there without a hop to the
+ * executor.
+ * <p>
+ * All command interfaces of a connection using {@link #codec()} must be wrapped, and pub/sub listeners registered with
+ * {@link #wrap(RedisPubSubListener)}. Results of every command are resolved, whatever their declared type, including
+ * {@code EVAL}, {@code FCALL}, {@code EXEC} and {@code dispatch} with the outputs of {@code io.lettuce.core.output}.
+ * Values are resolved in plain results, collections, maps, {@link Value} and its subtypes, {@link GeoWithin}, stream
+ * messages, scan cursors, {@link TransactionResult} and pub/sub messages, and command interfaces returned by wrapped
+ * commands are wrapped in turn. Commands returning values in other types, such as the search replies and cluster node
+ * selections, and {@code dispatch} with other outputs are rejected with an {@link UnsupportedOperationException} before
+ * they are sent. Values passed to streaming channels and pub/sub listeners are decoded on the event loop.
+ *
+ * <pre class="code">
+ * DecompressionOffload&lt;String, String&gt; offload = DecompressionOffload
+ *     .builder(LZ4CompressionCodecFactory.fastest(StringCodec.UTF8), Executors.newFixedThreadPool(4))
+ *     .build();
+ *
+ * RedisAsyncCommands&lt;String, String&gt; commands = offload.wrap(client.connect(offload.codec()).async());
+ * </pre>
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class DecompressionOffload<K, V> {
+
+    /**
+     * Default minimum encoded size of values decoded on the executor.
+     */
+    public static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+    private static final String LETTUCE_OUTPUTS = "io.lettuce.core.output.";
+
+    /**
+     * Types holding values that {@link #resolve(Object)} walks.
+     */
+    private static final List<Class<?>> WALKED_TYPES = List.of(RedisFuture.class, Mono.class, Flux.class,
+        Collection.class, Map.class, Value.class, GeoWithin.class, StreamMessage.class, ClaimedMessages.class,
+        ValueScanCursor.class, ScoredValueScanCursor.class, MapScanCursor.class, TransactionResult.class,
+        ChannelMessage.class, PatternMessage.class);
+
+    private final RedisCodec<K, V> delegate;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final OffloadingCodec<K, V> codec;
+    private final Map<Method, String> unsupportedResults = new ConcurrentHashMap<>();
+
+    private DecompressionOffload(RedisCodec<K, V> delegate, Executor executor, int threshold) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.scheduler = Schedulers.fromExecutor(executor);
+        this.codec = new OffloadingCodec<>(delegate, threshold);
+    }
+
+    /**
+     * @param delegate codec decoding values, usually a codec of {@link LZ4CompressionCodecFactory}. Must not be
+     *                 {@code null}.
+     * @param executor executor decoding large values, e.g. a bounded thread pool or, on Java 21+,
+     *                 {@code Executors.newVirtualThreadPerTaskExecutor()}. Must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return a new {@link Builder}.
+     */
+    public static <K, V> Builder<K, V> builder(RedisCodec<K, V> delegate, Executor executor) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.notNull(executor, "Executor must not be null");
+        return new Builder<>(delegate, executor);
+    }
+
+    /**
+     * @return Codec to create connections with whose command interfaces are {@link #wrap(RedisAsyncCommands) wrapped}.
+     */
+    public RedisCodec<K, V> codec() {
+        return codec;
+    }
+
+    /**
+     * @param commands asynchronous commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands completing futures after large values are decoded on the executor.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisAsyncCommands<K, V> wrap(RedisAsyncCommands<K, V> commands) {
+        return wrap(RedisAsyncCommands.class, commands);
+    }
+
+    /**
+     * @param commands reactive commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands emitting values after large values are decoded on the executor.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisReactiveCommands<K, V> wrap(RedisReactiveCommands<K, V> commands) {
+        return wrap(RedisReactiveCommands.class, commands);
+    }
+
+    /**
+     * @param commands synchronous commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands decoding large values on the calling thread.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisCommands<K, V> wrap(RedisCommands<K, V> commands) {
+        return wrap(RedisCommands.class, commands);
+    }
+
+    /**
+     * @param listener pub/sub listener of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Listener receiving decoded messages. Listeners are called on the event loop, so large messages are decoded
+     * there.
+     */
+    public RedisPubSubListener<K, V> wrap(RedisPubSubListener<K, V> listener) {
+        LettuceAssert.notNull(listener, "RedisPubSubListener must not be null");
+        return new ResolvingListener(listener);
+    }
+
+    /**
+     * Wraps any Lettuce command interface, such as the cluster or pub/sub command interfaces, whose methods declare values
+     * with the type variable {@code V}. {@link RedisFuture}, {@link Mono} and {@link Flux} results are resolved on the
+     * executor, other results on the calling thread.
+     *
+     * @param commandsInterface command interface implemented by {@code commands}, must not be {@code null}.
+     * @param commands          commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @param <T>               Command interface type.
+     * @return Commands resolving large values.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T wrap(Class<T> commandsInterface, T commands) {
+        LettuceAssert.notNull(commandsInterface, "Commands interface must not be null");
+        LettuceAssert.notNull(commands, "Commands must not be null");
+        LettuceAssert.isTrue(commandsInterface.isInterface(), "Commands interface must be an interface");
+        InvocationHandler handler = (proxy, method, args) -> {
+            checkSupported(method, args);
+            Object result;
+            try {
+                result = method.invoke(commands, resolvingChannels(args));
+            } catch(InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if(result == null || StatefulConnection.class.isAssignableFrom(method.getReturnType())) {
+                return result;
+            }
+            if(isCommandInterface(method.getReturnType())) {
+                return wrap((Class<Object>) method.getReturnType(), result);
+            }
+            return offload(result);
+        };
+        return commandsInterface.cast(Proxy.newProxyInstance(commandsInterface.getClassLoader(),
+            new Class<?>[] {commandsInterface}, handler));
+    }
+
+    private Object offload(Object result) {
+        if(result instanceof RedisFuture) {
+            return new OffloadedFuture<>((RedisFuture<?>) result);
+        }
+        if(result instanceof Mono) {
+            return ((Mono<?>) result).flatMap(this::resolveLater);
+        }
+        if(result instanceof Flux) {
+            return ((Flux<?>) result).flatMapSequential(this::resolveLater);
+        }
+        return resolve(result);
+    }
+
+    private Mono<Object> resolveLater(Object value) {
+        if(!containsDeferred(value)) {
+            return Mono.just(value);
+        }
+        return Mono.fromCallable(() -> resolve(value)).subscribeOn(scheduler);
+    }
+
+    private Object[] resolvingChannels(Object[] args) {
+        if(args == null) {
+            return null;
+        }
+        Object[] resolved = args;
+        for(int i = 0; i < args.length; i++) {
+            if(args[i] instanceof StreamingChannel) {
+                resolved = resolved == args ? args.clone() : resolved;
+                resolved[i] = resolvingChannel(args[i]);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Streaming channels are called on the event loop for every value, so their values are decoded right there.
+     */
+    private Object resolvingChannel(Object channel) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for(Class<?> type = channel.getClass(); type != null; type = type.getSuperclass()) {
+            Collections.addAll(interfaces, type.getInterfaces());
+        }
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object[] resolved = args == null ? null : args.clone();
+            if(resolved != null) {
+                for(int i = 0; i < resolved.length; i++) {
+                    resolved[i] = resolve(resolved[i]);
+                }
+            }
+            try {
+                return method.invoke(channel, resolved);
+            } catch(InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return Proxy.newProxyInstance(channel.getClass().getClassLoader(), interfaces.toArray(new Class<?>[0]), handler);
+    }
+
+    /**
+     * Rejects commands whose values would end up in types {@link #resolve(Object)} can't walk, before they are sent.
+     */
+    private void checkSupported(Method method, Object[] args) {
+        String unsupported = unsupportedResults.computeIfAbsent(method, m -> passesThrough(m.getReturnType()) ? ""
+            : unsupportedResult(m.getGenericReturnType()));
+        if(!unsupported.isEmpty()) {
+            throw new UnsupportedOperationException(method.getName() + " returns values in " + unsupported
+                + ", which DecompressionOffload can't resolve; use a connection with the delegate codec");
+        }
+        if(args == null) {
+            return;
+        }
+        for(Object arg : args) {
+            if(arg instanceof CommandOutput && !arg.getClass().getName().startsWith(LETTUCE_OUTPUTS)) {
+                throw new UnsupportedOperationException("Custom output " + arg.getClass().getName()
+                    + " may return values DecompressionOffload can't resolve; use an output of " + LETTUCE_OUTPUTS);
+            }
+        }
+    }
+
+    /**
+     * Connections are returned as they are, command interfaces such as those of cluster nodes are wrapped.
+     */
+    private static boolean passesThrough(Class<?> type) {
+        return StatefulConnection.class.isAssignableFrom(type) || isCommandInterface(type);
+    }
+
+    private static boolean isCommandInterface(Class<?> type) {
+        return type.isInterface() && type.getName().startsWith("io.lettuce.core.") && type.getName().endsWith("Commands");
+    }
+
+    /**
+     * @return Name of the first type within {@code type} that holds values but isn't walked, or an empty string.
+     */
+    private static String unsupportedResult(Type type) {
+        if(type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            if(WALKED_TYPES.stream().noneMatch(walked -> walked.isAssignableFrom(raw))) {
+                for(Type argument : parameterized.getActualTypeArguments()) {
+                    if(mentionsValue(argument)) {
+                        return raw.getName();
+                    }
+                }
+            }
+            for(Type argument : parameterized.getActualTypeArguments()) {
+                String unsupported = unsupportedResult(argument);
+                if(!unsupported.isEmpty()) {
+                    return unsupported;
+                }
+            }
+        }
+        if(type instanceof GenericArrayType) {
+            return unsupportedResult(((GenericArrayType) type).getGenericComponentType());
+        }
+        return "";
+    }
+
+    private static boolean mentionsValue(Type type) {
+        if(type instanceof TypeVariable) {
+            return ((TypeVariable<?>) type).getName().equals("V");
+        }
+        if(type instanceof ParameterizedType) {
+            for(Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if(mentionsValue(argument)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if(type instanceof GenericArrayType) {
+            return mentionsValue(((GenericArrayType) type).getGenericComponentType());
+        }
+        if(type instanceof WildcardType) {
+            for(Type bound : ((WildcardType) type).getUpperBounds()) {
+                if(mentionsValue(bound)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks {@code value} like {@link #resolve(Object)} does, so that results without large values complete on the event
+     * loop instead of hopping to the executor.
+     */
+    @SuppressWarnings("rawtypes")
+    private static boolean containsDeferred(Object value) {
+        if(value instanceof DeferredValue) {
+            return true;
+        }
+        if(value instanceof Collection) {
+            return containsAnyDeferred((Collection<?>) value);
+        }
+        if(value instanceof Map) {
+            return containsAnyDeferred(((Map<?, ?>) value).values());
+        }
+        if(value instanceof Value) {
+            Value<?> wrapped = (Value<?>) value;
+            return wrapped.hasValue() && containsDeferred(wrapped.getValue());
+        }
+        if(value instanceof GeoWithin) {
+            return containsDeferred(((GeoWithin<?>) value).getMember());
+        }
+        if(value instanceof StreamMessage) {
+            return containsDeferred(((StreamMessage<?, ?>) value).getBody());
+        }
+        if(value instanceof ClaimedMessages) {
+            return containsDeferred(((ClaimedMessages<?, ?>) value).getMessages());
+        }
+        if(value instanceof TransactionResult) {
+            for(Object result : (TransactionResult) value) {
+                if(containsDeferred(result)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if(value instanceof ChannelMessage) {
+            return containsDeferred(((ChannelMessage<?, ?>) value).getMessage());
+        }
+        if(value instanceof PatternMessage) {
+            return containsDeferred(((PatternMessage<?, ?>) value).getMessage());
+        }
+        if(value instanceof ValueScanCursor) {
+            return containsDeferred(((ValueScanCursor) value).getValues());
+        }
+        if(value instanceof ScoredValueScanCursor) {
+            return containsDeferred(((ScoredValueScanCursor) value).getValues());
+        }
+        if(value instanceof MapScanCursor) {
+            return containsDeferred(((MapScanCursor) value).getMap());
+        }
+        return false;
+    }
+
+    private static boolean containsAnyDeferred(Collection<?> values) {
+        for(Object value : values) {
+            if(containsDeferred(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces deferred values in {@code value} by their decoded form, in place where the containing collection allows.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object resolve(Object value) {
+        if(value instanceof DeferredValue) {
+            return ((DeferredValue) value).decode(delegate);
+        }
+        if(value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            try {
+                for(ListIterator<Object> iterator = list.listIterator(); iterator.hasNext();) {
+                    Object element = iterator.next();
+                    Object resolved = resolve(element);
+                    if(resolved != element) {
+                        iterator.set(resolved);
+                    }
+                }
+                return list;
+            } catch(UnsupportedOperationException e) {
+                List<Object> copy = new ArrayList<>(list.size());
+                for(Object element : list) {
+                    copy.add(resolve(element));
+                }
+                return copy;
+            }
+        }
+        if(value instanceof Set) {
+            Set<Object> set = (Set<Object>) value;
+            if(!containsAnyDeferred(set)) {
+                return set;
+            }
+            Set<Object> copy = new LinkedHashSet<>();
+            for(Object element : set) {
+                copy.add(resolve(element));
+            }
+            return copy;
+        }
+        if(value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            try {
+                map.replaceAll((k, v) -> resolve(v));
+                return map;
+            } catch(UnsupportedOperationException e) {
+                Map<Object, Object> copy = new LinkedHashMap<>();
+                map.forEach((k, v) -> copy.put(k, resolve(v)));
+                return copy;
+            }
+        }
+        if(value instanceof Value) {
+            Value<Object> wrapped = (Value<Object>) value;
+            return wrapped.hasValue() && containsDeferred(wrapped.getValue()) ? wrapped.map(this::resolve) : wrapped;
+        }
+        if(value instanceof GeoWithin) {
+            GeoWithin<Object> geo = (GeoWithin<Object>) value;
+            return new GeoWithin<>(resolve(geo.getMember()), geo.getDistance(), geo.getGeohash(), geo.getCoordinates());
+        }
+        if(value instanceof StreamMessage) {
+            StreamMessage<Object, Object> message = (StreamMessage<Object, Object>) value;
+            Object body = resolve(message.getBody());
+            return body == message.getBody() ? message
+                : new StreamMessage<>(message.getStream(), message.getId(), (Map<Object, Object>) body);
+        }
+        if(value instanceof ClaimedMessages) {
+            ClaimedMessages<Object, Object> claimed = (ClaimedMessages<Object, Object>) value;
+            Object messages = resolve(claimed.getMessages());
+            return messages == claimed.getMessages() ? claimed
+                : new ClaimedMessages<>(claimed.getId(), (List<StreamMessage<Object, Object>>) messages);
+        }
+        if(value instanceof TransactionResult) {
+            TransactionResult transaction = (TransactionResult) value;
+            List<Object> results = new ArrayList<>(transaction.size());
+            for(Object result : transaction) {
+                results.add(resolve(result));
+            }
+            return new ResolvedTransactionResult(transaction.wasDiscarded(), results);
+        }
+        if(value instanceof ChannelMessage) {
+            ChannelMessage<Object, Object> message = (ChannelMessage<Object, Object>) value;
+            return new ChannelMessage<>(message.getChannel(), resolve(message.getMessage()));
+        }
+        if(value instanceof PatternMessage) {
+            PatternMessage<Object, Object> message = (PatternMessage<Object, Object>) value;
+            return new PatternMessage<>(message.getPattern(), message.getChannel(), resolve(message.getMessage()));
+        }
+        if(value instanceof ValueScanCursor) {
+            resolve(((ValueScanCursor) value).getValues());
+        } else if(value instanceof ScoredValueScanCursor) {
+            resolve(((ScoredValueScanCursor) value).getValues());
+        } else if(value instanceof MapScanCursor) {
+            resolve(((MapScanCursor) value).getMap());
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V resolveValue(V value) {
+        return (V) resolve(value);
+    }
+
+    /**
+     * {@link TransactionResult} holding the resolved results of a transaction.
+     */
+    private static final class ResolvedTransactionResult implements TransactionResult {
+
+        private final boolean discarded;
+        private final List<Object> results;
+
+        ResolvedTransactionResult(boolean discarded, List<Object> results) {
+            this.discarded = discarded;
+            this.results = results;
+        }
+
+        @Override
+        public boolean wasDiscarded() {
+            return discarded;
+        }
+
+        @Override
+        public int size() {
+            return results.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return results.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(int index) {
+            return (T) results.get(index);
+        }
+
+        @Override
+        public Stream<Object> stream() {
+            return results.stream();
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return results.iterator();
+        }
+
+        @Override
+        public String toString() {
+            return "ResolvedTransactionResult[discarded=" + discarded + ", results=" + results + "]";
+        }
+    }
+
+    /**
+     * Pub/sub listener decoding messages before passing them on.
+     */
+    private final class ResolvingListener implements RedisPubSubListener<K, V> {
+
+        private final RedisPubSubListener<K, V> listener;
+
+        ResolvingListener(RedisPubSubListener<K, V> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void message(K channel, V message) {
+            listener.message(channel, resolveValue(message));
+        }
+
+        @Override
+        public void message(K pattern, K channel, V message) {
+            listener.message(pattern, channel, resolveValue(message));
+        }
+
+        @Override
+        public void smessage(K shardChannel, V message) {
+            listener.smessage(shardChannel, resolveValue(message));
+        }
+
+        @Override
+        public void subscribed(K channel, long count) {
+            listener.subscribed(channel, count);
+        }
+
+        @Override
+        public void psubscribed(K pattern, long count) {
+            listener.psubscribed(pattern, count);
+        }
+
+        @Override
+        public void unsubscribed(K channel, long count) {
+            listener.unsubscribed(channel, count);
+        }
+
+        @Override
+        public void punsubscribed(K pattern, long count) {
+            listener.punsubscribed(pattern, count);
+        }
+
+        @Override
+        public void ssubscribed(K shardChannel, long count) {
+            listener.ssubscribed(shardChannel, count);
+        }
+
+        @Override
+        public void sunsubscribed(K shardChannel, long count) {
+            listener.sunsubscribed(shardChannel, count);
+        }
+    }
+
+    /**
+     * Encoded value copied off the event loop, decoded once the result reaches the executor.
+     */
+    private static final class DeferredValue {
+
+        private final byte[] encoded;
+
+        DeferredValue(byte[] encoded) {
+            this.encoded = encoded;
+        }
+
+        <V> V decode(RedisCodec<?, V> codec) {
+            return codec.decodeValue(ByteBuffer.wrap(encoded));
+        }
+
+        @Override
+        public String toString() {
+            return "DeferredValue[" + encoded.length + " bytes]";
+        }
+    }
+
+    /**
+     * Defers decoding of values of at least {@code threshold} bytes.
+     */
+    private static final class OffloadingCodec<K, V> implements RedisCodec<K, V> {
+
+        private final RedisCodec<K, V> delegate;
+        private final int threshold;
+
+        OffloadingCodec(RedisCodec<K, V> delegate, int threshold) {
+            this.delegate = delegate;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public K decodeKey(ByteBuffer bytes) {
+            return delegate.decodeKey(bytes);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V decodeValue(ByteBuffer bytes) {
+            if(bytes.remaining() < threshold) {
+                return delegate.decodeValue(bytes);
+            }
+            byte[] encoded = new byte[bytes.remaining()];
+            bytes.get(encoded);
+            return (V) new DeferredValue(encoded);
+        }
+
+        @Override
+        public ByteBuffer encodeKey(K key) {
+            return delegate.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(V value) {
+            return delegate.encodeValue(value);
+        }
+    }
+
+    /**
+     * {@link RedisFuture} completing with the result of a command once its values are resolved on the executor.
+     */
+    private final class OffloadedFuture<T> extends CompletableFuture<T> implements RedisFuture<T> {
+
+        private final RedisFuture<?> command;
+
+        @SuppressWarnings("unchecked")
+        OffloadedFuture(RedisFuture<?> command) {
+            this.command = command;
+            command.whenComplete((result, error) -> {
+                if(error != null) {
+                    completeExceptionally(error);
+                } else if(!containsDeferred(result)) {
+                    complete((T) result);
+                } else {
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                complete((T) resolve(result));
+                            } catch(Exception e) {
+                                completeExceptionally(e);
+                            }
+                        });
+                    } catch(Exception e) {
+                        completeExceptionally(e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public String getError() {
+            return command.getError();
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                get(timeout, unit);
+                return true;
+            } catch(ExecutionException e) {
+                return true;
+            } catch(TimeoutException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            command.cancel(mayInterruptIfRunning);
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * Builder for {@link DecompressionOffload}.
+     */
+    public static final class Builder<K, V> {
+
+        private final RedisCodec<K, V> delegate;
+        private final Executor executor;
+        private int threshold = DEFAULT_THRESHOLD;
+
+        private Builder(RedisCodec<K, V> delegate, Executor executor) {
+            this.delegate = delegate;
+            this.executor = executor;
+        }
+
+        /**
+         * @param threshold minimum encoded size in bytes of values decoded on the executor, {@code 0} to decode all
+         *                  non-empty values there. Defaults to {@link #DEFAULT_THRESHOLD}.
+         * @return {@code this} builder.
+         */
+        public Builder<K, V> threshold(int threshold) {
+            LettuceAssert.isTrue(threshold >= 0, "Threshold must be greater than or equal to 0");
+            this.threshold = Math.max(threshold, 1);
+            return this;
+        }
+
+        public DecompressionOffload<K, V> build() {
+            return new DecompressionOffload<>(delegate, executor, threshold);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Applies a different value codec per key prefix on a single connection, e.g. no compression for {@code session:*}, fast
+ * LZ4 for {@code feed:*} and LZ4 HC for {@code report:*}.
+ * <p>
+ * {@link RedisCodec#encodeValue(Object)} does not see the key of a command, so routing happens one level up: the
+ * connection uses {@link #codec()}, and command interfaces {@link #wrap(RedisCommands) wrapped} by the router tag every
+ * value argument with the codec of the command's key before Lettuce encodes it. Values of commands without a single key,
+ * such as {@code MSET}, are routed by their own key. Values nested in other argument types, such as {@code ScoredValue},
+ * and values passed to unwrapped command interfaces use the default codec.
+ * <p>
+ * Replies are decoded by the default codec without knowing the key, so every routed codec must write values the default
+ * codec decodes, which {@link Builder#build()} checks. The default codec and all routes must be codecs of
+ * {@link LZ4CompressionCodecFactory}; plain codecs such as {@code StringCodec} are not allowed as routes, use
+ * {@link LZ4CompressionCodecFactory#uncompressed(RedisCodec)} to store values of a prefix raw. Codecs of the factory
+ * decode each other's values with two exceptions: only frame codecs decode LZ4 frames, and values compressed with a
+ * dictionary are only decoded by codecs knowing that dictionary, so a {@code dictionary(...)} route needs a default codec
+ * using the same {@link LZ4DictionaryRegistry} or one with the same dictionaries. A route to the default codec itself is
+ * always allowed. Keys are encoded by the default codec.
+ *
+ * <pre class="code">
+ * RedisCodec&lt;String, String&gt; codec = StringCodec.UTF8;
+ * KeyPrefixRouter&lt;String, String&gt; router = KeyPrefixRouter.builder(LZ4CompressionCodecFactory.fastest(codec))
+ *     .route("session:", LZ4CompressionCodecFactory.uncompressed(codec))
+ *     .route("report:", LZ4CompressionCodecFactory.highCompression(codec))
+ *     .build();
+ *
+ * RedisCommands&lt;String, String&gt; commands = router.wrap(client.connect(router.codec()).sync());
+ * </pre>
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class KeyPrefixRouter<K, V> {
+
+    private final RedisCodec<K, V> defaultCodec;
+    private final List<Route<K, V>> routes;
+    private final RoutingCodec<K, V> codec;
+    private final Map<Method, Invocation> invocations = new ConcurrentHashMap<>();
+
+    private KeyPrefixRouter(RedisCodec<K, V> defaultCodec, List<Route<K, V>> routes) {
+        this.defaultCodec = defaultCodec;
+        this.routes = routes;
+        this.codec = new RoutingCodec<>(defaultCodec);
+    }
+
+    /**
+     * @param defaultCodec codec for keys, replies and values of keys matching no route, must not be {@code null}.
+     * @param <K>          Key type.
+     * @param <V>          Value type.
+     * @return a new {@link Builder}.
+     */
+    public static <K, V> Builder<K, V> builder(RedisCodec<K, V> defaultCodec) {
+        LettuceAssert.notNull(defaultCodec, "RedisCodec must not be null");
+        return new Builder<>(defaultCodec);
+    }
+
+    /**
+     * @return Codec to create connections with whose command interfaces are {@link #wrap(RedisCommands) wrapped}.
+     */
+    public RedisCodec<K, V> codec() {
+        return codec;
+    }
+
+    /**
+     * @param key key of a command.
+     * @return Codec applied to values of {@code key}: the codec of the longest matching prefix, or the default codec.
+     */
+    public RedisCodec<K, V> codecFor(K key) {
+        if(key == null || routes.isEmpty()) {
+            return defaultCodec;
+        }
+        ByteBuffer encoded = defaultCodec.encodeKey(key);
+        for(Route<K, V> route : routes) {
+            if(route.matches(encoded)) {
+                return route.codec;
+            }
+        }
+        return defaultCodec;
+    }
+
+    /**
+     * @param commands synchronous commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands routing values by key prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisCommands<K, V> wrap(RedisCommands<K, V> commands) {
+        return wrap(RedisCommands.class, commands);
+    }
+
+    /**
+     * @param commands asynchronous commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands routing values by key prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisAsyncCommands<K, V> wrap(RedisAsyncCommands<K, V> commands) {
+        return wrap(RedisAsyncCommands.class, commands);
+    }
+
+    /**
+     * @param commands reactive commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @return Commands routing values by key prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public RedisReactiveCommands<K, V> wrap(RedisReactiveCommands<K, V> commands) {
+        return wrap(RedisReactiveCommands.class, commands);
+    }
+
+    /**
+     * Wraps any Lettuce command interface, such as the cluster command interfaces, whose methods declare keys and values
+     * with the type variables {@code K} and {@code V}.
+     *
+     * @param commandsInterface command interface implemented by {@code commands}, must not be {@code null}.
+     * @param commands          commands of a connection using {@link #codec()}, must not be {@code null}.
+     * @param <T>               Command interface type.
+     * @return Commands routing values by key prefix.
+     */
+    public <T> T wrap(Class<T> commandsInterface, T commands) {
+        LettuceAssert.notNull(commandsInterface, "Commands interface must not be null");
+        LettuceAssert.notNull(commands, "Commands must not be null");
+        LettuceAssert.isTrue(commandsInterface.isInterface(), "Commands interface must be an interface");
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object[] routedArgs = args == null ? null : invocation(method).route(args);
+            try {
+                return method.invoke(commands, routedArgs);
+            } catch(InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return commandsInterface.cast(Proxy.newProxyInstance(commandsInterface.getClassLoader(),
+            new Class<?>[] {commandsInterface}, handler));
+    }
+
+    private Invocation invocation(Method method) {
+        return invocations.computeIfAbsent(method, Invocation::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object routed(Object key, Object value) {
+        if(value == null || value instanceof RoutedValue) {
+            return value;
+        }
+        RedisCodec<K, V> valueCodec = codecFor((K) key);
+        return valueCodec == defaultCodec ? value : new RoutedValue<>(valueCodec, (V) value);
+    }
+
+    private enum Kind {
+        KEY, KEYS, VALUE, VALUES, KEY_VALUE_MAP
+    }
+
+    /**
+     * Positions of keys and values in the arguments of a command method.
+     */
+    private final class Invocation {
+
+        private final Kind[] kinds;
+        private final boolean routed;
+
+        Invocation(Method method) {
+            Type[] types = method.getGenericParameterTypes();
+            kinds = new Kind[types.length];
+            boolean hasValues = false;
+            for(int i = 0; i < types.length; i++) {
+                kinds[i] = kind(types[i]);
+                hasValues |= kinds[i] == Kind.VALUE || kinds[i] == Kind.VALUES || kinds[i] == Kind.KEY_VALUE_MAP;
+            }
+            routed = hasValues;
+        }
+
+        Object[] route(Object[] args) {
+            if(!routed) {
+                return args;
+            }
+            Object key = null;
+            Object[] routedArgs = args.clone();
+            for(int i = 0; i < args.length; i++) {
+                Kind kind = kinds[i];
+                if(kind == null || args[i] == null) {
+                    continue;
+                }
+                switch(kind) {
+                    case KEY:
+                        key = key == null ? args[i] : key;
+                        break;
+                    case KEYS:
+                        Object[] keys = (Object[]) args[i];
+                        key = key == null && keys.length > 0 ? keys[0] : key;
+                        break;
+                    case VALUE:
+                        routedArgs[i] = routed(key, args[i]);
+                        break;
+                    case VALUES:
+                        // a new Object[] as varargs arrays of the caller, e.g. String[], can't hold routed values
+                        Object[] source = (Object[]) args[i];
+                        Object[] values = new Object[source.length];
+                        for(int j = 0; j < values.length; j++) {
+                            values[j] = routed(key, source[j]);
+                        }
+                        routedArgs[i] = values;
+                        break;
+                    case KEY_VALUE_MAP:
+                        Map<Object, Object> map = new LinkedHashMap<>();
+                        for(Map.Entry<?, ?> entry : ((Map<?, ?>) args[i]).entrySet()) {
+                            // hash fields belong to the command key, MSET entries to their own key
+                            map.put(entry.getKey(), routed(key != null ? key : entry.getKey(), entry.getValue()));
+                        }
+                        routedArgs[i] = map;
+                        break;
+                }
+            }
+            return routedArgs;
+        }
+
+        private Kind kind(Type type) {
+            if(isVariable(type, "K")) {
+                return Kind.KEY;
+            }
+            if(isVariable(type, "V")) {
+                return Kind.VALUE;
+            }
+            if(type instanceof GenericArrayType) {
+                Type component = ((GenericArrayType) type).getGenericComponentType();
+                return isVariable(component, "K") ? Kind.KEYS : isVariable(component, "V") ? Kind.VALUES : null;
+            }
+            if(type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Map.class) {
+                Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+                return isVariable(arguments[1], "V") ? Kind.KEY_VALUE_MAP : null;
+            }
+            return null;
+        }
+
+        private boolean isVariable(Type type, String name) {
+            return type instanceof TypeVariable && ((TypeVariable<?>) type).getName().equals(name);
+        }
+    }
+
+    /**
+     * Value argument tagged with the codec of its key. Only ever passed to {@link RoutingCodec}.
+     */
+    private static final class RoutedValue<K, V> {
+
+        private final RedisCodec<K, V> codec;
+        private final V value;
+
+        RoutedValue(RedisCodec<K, V> codec, V value) {
+            this.codec = codec;
+            this.value = value;
+        }
+
+        ByteBuffer encode() {
+            return codec.encodeValue(value);
+        }
+    }
+
+    /**
+     * Encodes {@link RoutedValue routed values} with their codec and everything else with the default codec.
+     */
+    private static final class RoutingCodec<K, V> implements RedisCodec<K, V> {
+
+        private final RedisCodec<K, V> delegate;
+
+        RoutingCodec(RedisCodec<K, V> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public K decodeKey(ByteBuffer bytes) {
+            return delegate.decodeKey(bytes);
+        }
+
+        @Override
+        public V decodeValue(ByteBuffer bytes) {
+            return delegate.decodeValue(bytes);
+        }
+
+        @Override
+        public ByteBuffer encodeKey(K key) {
+            return delegate.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(V value) {
+            if(value instanceof RoutedValue) {
+                return ((RoutedValue<?, ?>) value).encode();
+            }
+            return delegate.encodeValue(value);
+        }
+    }
+
+    private static final class Route<K, V> {
+
+        private final byte[] prefix;
+        private final RedisCodec<K, V> codec;
+
+        Route(byte[] prefix, RedisCodec<K, V> codec) {
+            this.prefix = prefix;
+            this.codec = codec;
+        }
+
+        boolean matches(ByteBuffer key) {
+            if(key.remaining() < prefix.length) {
+                return false;
+            }
+            int position = key.position();
+            for(int i = 0; i < prefix.length; i++) {
+                if(key.get(position + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Builder for {@link KeyPrefixRouter}.
+     */
+    public static final class Builder<K, V> {
+
+        private final RedisCodec<K, V> defaultCodec;
+        private final Map<ByteBuffer, Route<K, V>> routes = new LinkedHashMap<>();
+
+        private Builder(RedisCodec<K, V> defaultCodec) {
+            this.defaultCodec = defaultCodec;
+        }
+
+        /**
+         * Routes values of keys starting with {@code prefix}, encoded as UTF-8, to {@code codec}.
+         *
+         * @param prefix key prefix, must not be empty and must not be routed yet.
+         * @param codec  codec for values of matching keys, must not be {@code null}.
+         * @return {@code this} builder.
+         */
+        public Builder<K, V> route(String prefix, RedisCodec<K, V> codec) {
+            LettuceAssert.notEmpty(prefix, "Prefix must not be empty");
+            return route(prefix.getBytes(StandardCharsets.UTF_8), codec);
+        }
+
+        /**
+         * Routes values of keys whose encoded form starts with {@code prefix} to {@code codec}. The longest matching
+         * prefix wins.
+         *
+         * @param prefix encoded key prefix, must not be empty and must not be routed yet.
+         * @param codec  codec for values of matching keys, must not be {@code null}.
+         * @return {@code this} builder.
+         */
+        public Builder<K, V> route(byte[] prefix, RedisCodec<K, V> codec) {
+            LettuceAssert.isTrue(prefix != null && prefix.length > 0, "Prefix must not be empty");
+            LettuceAssert.notNull(codec, "RedisCodec must not be null");
+            byte[] copy = prefix.clone();
+            LettuceAssert.isTrue(!routes.containsKey(ByteBuffer.wrap(copy)), "Prefix is already routed");
+            routes.put(ByteBuffer.wrap(copy), new Route<>(copy, codec));
+            return this;
+        }
+
+        /**
+         * @return Router using the routes added so far.
+         * @throws IllegalArgumentException if the default codec can't decode the values of a route: the route or the
+         *                                  default codec isn't a codec of {@link LZ4CompressionCodecFactory}, or the
+         *                                  route writes LZ4 frames or compresses with a dictionary the default codec
+         *                                  doesn't read.
+         */
+        public KeyPrefixRouter<K, V> build() {
+            for(Route<K, V> route : routes.values()) {
+                checkDecodable(route);
+            }
+            List<Route<K, V>> sorted = new ArrayList<>(routes.values());
+            sorted.sort(Comparator.comparingInt((Route<K, V> route) -> route.prefix.length).reversed());
+            return new KeyPrefixRouter<>(defaultCodec, sorted);
+        }
+
+        private void checkDecodable(Route<K, V> route) {
+            if(route.codec == defaultCodec) {
+                return;
+            }
+            String prefix = new String(route.prefix, StandardCharsets.UTF_8);
+            LettuceAssert.isTrue(route.codec instanceof LZ4CompressingCodec, () -> "Route " + prefix
+                + " must use a codec of LZ4CompressionCodecFactory, e.g. uncompressed(...) for raw values");
+            LettuceAssert.isTrue(defaultCodec instanceof LZ4CompressingCodec, () -> "Route " + prefix
+                + " needs a default codec of LZ4CompressionCodecFactory to decode its values");
+            LZ4CompressingCodec<K, V> routed = (LZ4CompressingCodec<K, V>) route.codec;
+            LZ4CompressingCodec<K, V> fallback = (LZ4CompressingCodec<K, V>) defaultCodec;
+
+            LettuceAssert.isTrue(routed.frameFormat() == null || fallback.frameFormat() != null,
+                () -> "Route " + prefix + " writes LZ4 frames, which the default codec doesn't decode");
+            if(routed.dictionaries() == null) {
+                return;
+            }
+            LZ4DictionaryRegistry known = fallback.dictionaries();
+            for(LZ4Dictionary dictionary : routed.dictionaries().dictionaries()) {
+                LZ4Dictionary same = known == null ? null : known.get(dictionary.id());
+                LettuceAssert.isTrue(same != null && Arrays.equals(same.content(), dictionary.content()),
+                    () -> "Route " + prefix + " compresses with dictionary " + dictionary.id()
+                        + ", which the default codec doesn't know");
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Estimates how well a Redis keyspace compresses with the codecs of {@link LZ4CompressionCodecFactory}.
+ * <p>
+ * For each configured key prefix, keys are enumerated with {@code SCAN}, a random sample is fetched with {@code MGET}
+ * and every sampled string value is encoded and decoded with every {@link Candidate}. Values are measured on a worker
+ * pool while scanning continues; the number of fetched but not yet measured batches is bounded so memory use does not
+ * depend on the keyspace size. Keys that do not hold a string are skipped.
+ * <p>
+ * A key matching several configured prefixes is sampled once per prefix.
+ */
+public final class KeyspaceCompressionAnalyzer {
+
+    /**
+     * HC levels evaluated when no candidates are configured.
+     */
+    static final int[] DEFAULT_HIGH_COMPRESSION_LEVELS = {3, 6, 9, 12, 17};
+
+    private final KeyspaceSource source;
+    private final List<String> prefixes;
+    private final double sampleRate;
+    private final long maxSamplesPerPrefix;
+    private final int scanCount;
+    private final int parallelism;
+    private final int maxPendingBatches;
+    private final List<Candidate> candidates;
+    private final long seed;
+
+    private KeyspaceCompressionAnalyzer(Builder builder) {
+        this.source = builder.source;
+        this.prefixes = builder.prefixes.isEmpty() ? Collections.singletonList("") : new ArrayList<>(builder.prefixes);
+        this.sampleRate = builder.sampleRate;
+        this.maxSamplesPerPrefix = builder.maxSamplesPerPrefix;
+        this.scanCount = builder.scanCount;
+        this.parallelism = builder.parallelism;
+        this.maxPendingBatches = builder.maxPendingBatches;
+        this.candidates = builder.candidates.isEmpty() ? defaultCandidates() : new ArrayList<>(builder.candidates);
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Creates a builder analyzing the keyspace behind {@code source}.
+     *
+     * @param source keyspace to analyze, must not be {@code null}.
+     * @return a new {@link Builder}.
+     */
+    public static Builder builder(KeyspaceSource source) {
+        LettuceAssert.notNull(source, "KeyspaceSource must not be null");
+        return new Builder(source);
+    }
+
+    /**
+     * Creates one candidate per {@link LZ4CompressionCodecFactory} instance choice that can be loaded in this JVM, plus
+     * one HC candidate for each level of {@link #DEFAULT_HIGH_COMPRESSION_LEVELS}.
+     *
+     * @return Default candidates.
+     */
+    public static List<Candidate> defaultCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(Candidate.of("fastest", LZ4CompressionCodecFactory.fastest(ByteArrayCodec.INSTANCE)));
+        candidates.add(Candidate.of("safest", LZ4CompressionCodecFactory.safest(ByteArrayCodec.INSTANCE)));
+        try {
+            candidates.add(Candidate.of("unsafe", LZ4CompressionCodecFactory.unsafeInstance(ByteArrayCodec.INSTANCE)));
+        } catch(AssertionError | LinkageError e) {
+            // sun.misc.Unsafe not available in this JVM
+        }
+        try {
+            candidates.add(Candidate.of("native", LZ4CompressionCodecFactory.nativeInstance(ByteArrayCodec.INSTANCE)));
+        } catch(AssertionError | LinkageError e) {
+            // JNI library not available on this platform
+        }
+        try {
+            candidates.add(Candidate.of("vectorized", LZ4CompressionCodecFactory.vectorizedInstance(ByteArrayCodec.INSTANCE)));
+        } catch(LinkageError e) {
+            // vectorized engine can't be loaded in this JVM
+        }
+        for(int level : DEFAULT_HIGH_COMPRESSION_LEVELS) {
+            candidates.add(Candidate.of("hc-" + level, LZ4CompressionCodecFactory.highCompression(ByteArrayCodec.INSTANCE, level)));
+        }
+        return candidates;
+    }
+
+    /**
+     * Scans and samples all configured prefixes, one after another, and blocks until every sampled value was measured.
+     *
+     * @return the analysis report.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for workers.
+     */
+    public KeyspaceCompressionReport analyze() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        Semaphore pendingBatches = new Semaphore(maxPendingBatches);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<PrefixStatistics> statistics = new ArrayList<>();
+
+        try {
+            for(String prefix : prefixes) {
+                if(failure.get() != null) {
+                    break;
+                }
+                PrefixStatistics prefixStatistics = new PrefixStatistics(prefix, candidates.size());
+                statistics.add(prefixStatistics);
+
+                String match = escapeGlob(prefix) + "*";
+                long sampled = 0;
+                ScanCursor cursor = ScanCursor.INITIAL;
+                do {
+                    KeyScanCursor<byte[]> page = source.scan(cursor, match, scanCount);
+                    List<byte[]> batch = new ArrayList<>();
+                    for(byte[] key : page.getKeys()) {
+                        prefixStatistics.scannedKeys++;
+                        if(sampled < maxSamplesPerPrefix && random.nextDouble() < sampleRate) {
+                            batch.add(key);
+                            sampled++;
+                        }
+                    }
+                    if(!batch.isEmpty()) {
+                        pendingBatches.acquire();
+                        executor.execute(() -> {
+                            try {
+                                measure(batch, prefixStatistics);
+                            } catch(Throwable t) {
+                                failure.compareAndSet(null, t);
+                            } finally {
+                                pendingBatches.release();
+                            }
+                        });
+                    }
+                    cursor = page;
+                } while(!cursor.isFinished() && sampled < maxSamplesPerPrefix && failure.get() == null);
+            }
+
+            pendingBatches.acquire(maxPendingBatches);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if(failure.get() != null) {
+            throw new RuntimeException("Failed to analyze keyspace", failure.get());
+        }
+
+        List<KeyspaceCompressionReport.PrefixReport> reports = new ArrayList<>(statistics.size());
+        for(PrefixStatistics prefixStatistics : statistics) {
+            reports.add(prefixStatistics.toReport(candidates));
+        }
+        return new KeyspaceCompressionReport(reports);
+    }
+
+    private void measure(List<byte[]> keys, PrefixStatistics statistics) {
+        for(KeyValue<byte[], byte[]> keyValue : source.mget(keys)) {
+            if(!keyValue.hasValue()) {
+                continue;
+            }
+
+            byte[] value = keyValue.getValue();
+            statistics.recordSize(value.length);
+
+            for(int i = 0; i < candidates.size(); i++) {
+                RedisCodec<byte[], byte[]> codec = candidates.get(i).codec();
+
+                long start = System.nanoTime();
+                ByteBuffer encoded = codec.encodeValue(value);
+                long encodedAt = System.nanoTime();
+                int encodedLength = encoded.remaining();
+                codec.decodeValue(encoded);
+                long decodedAt = System.nanoTime();
+
+                statistics.recordCandidate(i, value.length, encodedLength, encodedAt - start, decodedAt - encodedAt);
+            }
+        }
+    }
+
+    static String escapeGlob(String prefix) {
+        StringBuilder sb = new StringBuilder(prefix.length());
+        for(int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if(c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A named value codec evaluated by the analyzer.
+     */
+    public static final class Candidate {
+
+        private final String name;
+        private final RedisCodec<byte[], byte[]> codec;
+
+        private Candidate(String name, RedisCodec<byte[], byte[]> codec) {
+            this.name = name;
+            this.codec = codec;
+        }
+
+        /**
+         * @param name  name used in the report, must not be {@code null}.
+         * @param codec codec whose {@code encodeValue}/{@code decodeValue} are measured, must not be {@code null}.
+         * @return a new {@link Candidate}.
+         */
+        public static Candidate of(String name, RedisCodec<byte[], byte[]> codec) {
+            LettuceAssert.notNull(name, "Name must not be null");
+            LettuceAssert.notNull(codec, "RedisCodec must not be null");
+            return new Candidate(name, codec);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public RedisCodec<byte[], byte[]> codec() {
+            return codec;
+        }
+    }
+
+    /**
+     * Builder for {@link KeyspaceCompressionAnalyzer}.
+     */
+    public static final class Builder {
+
+        private final KeyspaceSource source;
+        private final List<String> prefixes = new ArrayList<>();
+        private final List<Candidate> candidates = new ArrayList<>();
+        private double sampleRate = 0.01;
+        private long maxSamplesPerPrefix = 10_000;
+        private int scanCount = 1_000;
+        private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int maxPendingBatches = 4;
+        private long seed = System.nanoTime();
+
+        private Builder(KeyspaceSource source) {
+            this.source = source;
+        }
+
+        /**
+         * Key prefixes to analyze. If none are given, the whole keyspace is analyzed as prefix {@code ""}.
+         *
+         * @param prefixes key prefixes, must not be {@code null}.
+         * @return {@code this}.
+         */
+        public Builder prefixes(String... prefixes) {
+            LettuceAssert.noNullElements(prefixes, "Prefixes must not contain null elements");
+            this.prefixes.addAll(Arrays.asList(prefixes));
+            return this;
+        }
+
+        /**
+         * Probability of a scanned key being sampled. Defaults to {@code 0.01}.
+         *
+         * @param sampleRate sample rate, greater than {@code 0} and at most {@code 1}.
+         * @return {@code this}.
+         */
+        public Builder sampleRate(double sampleRate) {
+            LettuceAssert.isTrue(sampleRate > 0 && sampleRate <= 1, "Sample rate must be in (0, 1]");
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Stops scanning a prefix once this many keys were sampled. Defaults to {@code 10000}.
+         *
+         * @param maxSamplesPerPrefix sample limit, must be positive.
+         * @return {@code this}.
+         */
+        public Builder maxSamplesPerPrefix(long maxSamplesPerPrefix) {
+            LettuceAssert.isTrue(maxSamplesPerPrefix > 0, "Max samples per prefix must be greater than 0");
+            this.maxSamplesPerPrefix = maxSamplesPerPrefix;
+            return this;
+        }
+
+        /**
+         * {@code COUNT} hint for {@code SCAN}. Defaults to {@code 1000}.
+         *
+         * @param scanCount scan count, must be positive.
+         * @return {@code this}.
+         */
+        public Builder scanCount(int scanCount) {
+            LettuceAssert.isTrue(scanCount > 0, "Scan count must be greater than 0");
+            this.scanCount = scanCount;
+            return this;
+        }
+
+        /**
+         * Number of worker threads fetching and measuring sampled values. Defaults to half the available processors.
+         *
+         * @param parallelism worker count, must be positive.
+         * @return {@code this}.
+         */
+        public Builder parallelism(int parallelism) {
+            LettuceAssert.isTrue(parallelism > 0, "Parallelism must be greater than 0");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Number of sampled batches that may wait for or be under measurement at the same time. Together with
+         * {@link #scanCount(int)} this bounds the number of values held in memory. Defaults to {@code 4}.
+         *
+         * @param maxPendingBatches pending batch limit, must be positive.
+         * @return {@code this}.
+         */
+        public Builder maxPendingBatches(int maxPendingBatches) {
+            LettuceAssert.isTrue(maxPendingBatches > 0, "Max pending batches must be greater than 0");
+            this.maxPendingBatches = maxPendingBatches;
+            return this;
+        }
+
+        /**
+         * Adds a codec to evaluate. If none are added, {@link #defaultCandidates()} are used.
+         *
+         * @param candidate candidate, must not be {@code null}.
+         * @return {@code this}.
+         */
+        public Builder candidate(Candidate candidate) {
+            LettuceAssert.notNull(candidate, "Candidate must not be null");
+            this.candidates.add(candidate);
+            return this;
+        }
+
+        /**
+         * Seed of the sampling random number generator, for reproducible samples.
+         *
+         * @param seed random seed.
+         * @return {@code this}.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public KeyspaceCompressionAnalyzer build() {
+            return new KeyspaceCompressionAnalyzer(this);
+        }
+    }
+
+    private static final class PrefixStatistics {
+
+        private final String prefix;
+        private final long[] sizeBuckets = new long[Long.SIZE + 1];
+        private final long[][] candidateTotals;
+
+        private long scannedKeys;
+        private long count;
+        private long totalBytes;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        PrefixStatistics(String prefix, int candidateCount) {
+            this.prefix = prefix;
+            this.candidateTotals = new long[candidateCount][5];
+        }
+
+        synchronized void recordSize(int size) {
+            sizeBuckets[KeyspaceCompressionReport.SizeDistribution.bucketOf(size)]++;
+            count++;
+            totalBytes += size;
+            min = Math.min(min, size);
+            max = Math.max(max, size);
+        }
+
+        synchronized void recordCandidate(int candidate, int originalLength, int encodedLength, long compressNanos,
+            long decompressNanos) {
+            long[] totals = candidateTotals[candidate];
+            totals[0] += originalLength;
+            totals[1] += encodedLength;
+            totals[2] += compressNanos;
+            totals[3] += decompressNanos;
+            if(encodedLength >= originalLength) {
+                totals[4]++;
+            }
+        }
+
+        synchronized KeyspaceCompressionReport.PrefixReport toReport(List<Candidate> candidates) {
+            KeyspaceCompressionReport.SizeDistribution sizes = new KeyspaceCompressionReport.SizeDistribution(
+                sizeBuckets.clone(), count, totalBytes, count == 0 ? 0 : min, max);
+
+            List<KeyspaceCompressionReport.CandidateReport> candidateReports = new ArrayList<>(candidates.size());
+            for(int i = 0; i < candidates.size(); i++) {
+                long[] totals = candidateTotals[i];
+                candidateReports.add(new KeyspaceCompressionReport.CandidateReport(candidates.get(i).name(), totals[0],
+                    totals[1], totals[2], totals[3], totals[4]));
+            }
+            return new KeyspaceCompressionReport.PrefixReport(prefix, scannedKeys, sizes, candidateReports);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "keyspace-compression-analyzer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Result of a {@link KeyspaceCompressionAnalyzer} run: one {@link PrefixReport} per analyzed key prefix, each holding the
+ * size distribution of the sampled values and one {@link CandidateReport} per evaluated codec.
+ */
+public final class KeyspaceCompressionReport {
+
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final List<PrefixReport> prefixes;
+
+    KeyspaceCompressionReport(List<PrefixReport> prefixes) {
+        this.prefixes = Collections.unmodifiableList(prefixes);
+    }
+
+    /**
+     * @return Reports of all analyzed prefixes, in configuration order.
+     */
+    public List<PrefixReport> prefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @param prefix analyzed key prefix.
+     * @return Report of {@code prefix}, or {@code null} if the prefix was not analyzed.
+     */
+    public PrefixReport prefix(String prefix) {
+        for(PrefixReport report : prefixes) {
+            if(report.prefix().equals(prefix)) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(PrefixReport report : prefixes) {
+            SizeDistribution sizes = report.sizes();
+            sb.append(String.format(Locale.ROOT, "prefix '%s': scanned=%d sampled=%d bytes=%d size[min=%d p50=%d p90=%d p99=%d max=%d]%n",
+                report.prefix(), report.scannedKeys(), sizes.count(), sizes.totalBytes(), sizes.min(), sizes.percentile(0.5),
+                sizes.percentile(0.9), sizes.percentile(0.99), sizes.max()));
+            for(CandidateReport candidate : report.candidates()) {
+                sb.append(String.format(Locale.ROOT, "  %-12s ratio=%6.2f compressed=%d compress=%.0fns/MB decompress=%.0fns/MB incompressible=%d%n",
+                    candidate.name(), candidate.ratio(), candidate.compressedBytes(), candidate.compressNanosPerMegabyte(),
+                    candidate.decompressNanosPerMegabyte(), candidate.incompressibleValues()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Analysis result of a single key prefix.
+     */
+    public static final class PrefixReport {
+
+        private final String prefix;
+        private final long scannedKeys;
+        private final SizeDistribution sizes;
+        private final List<CandidateReport> candidates;
+
+        PrefixReport(String prefix, long scannedKeys, SizeDistribution sizes, List<CandidateReport> candidates) {
+            this.prefix = prefix;
+            this.scannedKeys = scannedKeys;
+            this.sizes = sizes;
+            this.candidates = Collections.unmodifiableList(candidates);
+        }
+
+        /**
+         * @return Analyzed key prefix.
+         */
+        public String prefix() {
+            return prefix;
+        }
+
+        /**
+         * @return Number of keys returned by {@code SCAN} for this prefix, sampled or not.
+         */
+        public long scannedKeys() {
+            return scannedKeys;
+        }
+
+        /**
+         * @return Size distribution of the sampled string values.
+         */
+        public SizeDistribution sizes() {
+            return sizes;
+        }
+
+        /**
+         * @return Per-codec results, in configuration order.
+         */
+        public List<CandidateReport> candidates() {
+            return candidates;
+        }
+
+        /**
+         * @param name candidate name.
+         * @return Result of the candidate named {@code name}, or {@code null} if there is none.
+         */
+        public CandidateReport candidate(String name) {
+            for(CandidateReport candidate : candidates) {
+                if(candidate.name().equals(name)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Value size distribution recorded in power-of-two buckets.
+     */
+    public static final class SizeDistribution {
+
+        private final long[] buckets;
+        private final long count;
+        private final long totalBytes;
+        private final long min;
+        private final long max;
+
+        SizeDistribution(long[] buckets, long count, long totalBytes, long min, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.totalBytes = totalBytes;
+            this.min = min;
+            this.max = max;
+        }
+
+        static int bucketOf(long size) {
+            return Long.SIZE - Long.numberOfLeadingZeros(size);
+        }
+
+        private static long upperBoundOf(int bucket) {
+            return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+
+        /**
+         * @return Number of sampled values.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return Sum of the sizes of all sampled values.
+         */
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * @return Smallest sampled value size, {@code 0} if nothing was sampled.
+         */
+        public long min() {
+            return min;
+        }
+
+        /**
+         * @return Largest sampled value size, {@code 0} if nothing was sampled.
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * @return Mean sampled value size, {@code 0} if nothing was sampled.
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) totalBytes / count;
+        }
+
+        /**
+         * Estimates a size percentile. The result is the upper bound of the bucket containing the percentile, capped at
+         * {@link #max()}.
+         *
+         * @param percentile percentile between {@code 0} and {@code 1}.
+         * @return Estimated size at {@code percentile}, {@code 0} if nothing was sampled.
+         */
+        public long percentile(double percentile) {
+            if(count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for(int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if(seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return Number of values per bucket, keyed by the inclusive upper size bound of the bucket.
+         */
+        public SortedMap<Long, Long> histogram() {
+            SortedMap<Long, Long> histogram = new TreeMap<>();
+            for(int i = 0; i < buckets.length; i++) {
+                if(buckets[i] != 0) {
+                    histogram.put(upperBoundOf(i), buckets[i]);
+                }
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Result of encoding and decoding the sampled values of one prefix with one codec.
+     */
+    public static final class CandidateReport {
+
+        private final String name;
+        private final long originalBytes;
+        private final long compressedBytes;
+        private final long compressNanos;
+        private final long decompressNanos;
+        private final long incompressibleValues;
+
+        CandidateReport(String name, long originalBytes, long compressedBytes, long compressNanos, long decompressNanos,
+            long incompressibleValues) {
+            this.name = name;
+            this.originalBytes = originalBytes;
+            this.compressedBytes = compressedBytes;
+            this.compressNanos = compressNanos;
+            this.decompressNanos = decompressNanos;
+            this.incompressibleValues = incompressibleValues;
+        }
+
+        /**
+         * @return Candidate name.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return Sum of the sampled value sizes before encoding.
+         */
+        public long originalBytes() {
+            return originalBytes;
+        }
+
+        /**
+         * @return Sum of the encoded value sizes, including the codec header.
+         */
+        public long compressedBytes() {
+            return compressedBytes;
+        }
+
+        /**
+         * @return Compression ratio, {@code originalBytes / compressedBytes}; {@code 1} if nothing was sampled.
+         */
+        public double ratio() {
+            return compressedBytes == 0 ? 1 : (double) originalBytes / compressedBytes;
+        }
+
+        /**
+         * @return Time spent in {@code encodeValue} per MiB of original data.
+         */
+        public double compressNanosPerMegabyte() {
+            return originalBytes == 0 ? 0 : compressNanos * BYTES_PER_MEGABYTE / originalBytes;
+        }
+
+        /**
+         * @return Time spent in {@code decodeValue} per MiB of original data.
+         */
+        public double decompressNanosPerMegabyte() {
+            return originalBytes == 0 ? 0 : decompressNanos * BYTES_PER_MEGABYTE / originalBytes;
+        }
+
+        /**
+         * @return Number of values whose encoded form was not smaller than the original.
+         */
+        public long incompressibleValues() {
+            return incompressibleValues;
+        }
+    }
+}
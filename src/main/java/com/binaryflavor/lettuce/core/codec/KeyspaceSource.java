@@ -0,0 +1,60 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.util.List;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.api.sync.RedisKeyCommands;
+import io.lettuce.core.api.sync.RedisStringCommands;
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Read-only view of a Redis keyspace used by {@link KeyspaceCompressionAnalyzer}. Keys and values are raw bytes as stored
+ * in Redis. Implementations must be safe for concurrent use.
+ */
+public interface KeyspaceSource {
+
+    /**
+     * Runs one {@code SCAN} iteration.
+     *
+     * @param cursor cursor returned by the previous iteration, or {@link ScanCursor#INITIAL}.
+     * @param match  glob-style pattern keys must match.
+     * @param count  {@code COUNT} hint passed to Redis.
+     * @return keys of this iteration and the cursor of the next one.
+     */
+    KeyScanCursor<byte[]> scan(ScanCursor cursor, String match, long count);
+
+    /**
+     * Fetches the given keys with {@code MGET}. Missing keys and keys that do not hold a string have an empty value.
+     *
+     * @param keys keys to fetch.
+     * @return key-value pairs in the order of {@code keys}.
+     */
+    List<KeyValue<byte[], byte[]>> mget(List<byte[]> keys);
+
+    /**
+     * Creates a {@link KeyspaceSource} backed by synchronous Lettuce commands, e.g. {@code RedisCommands} or
+     * {@code RedisAdvancedClusterCommands} of a connection using {@code ByteArrayCodec}.
+     *
+     * @param commands synchronous commands, must not be {@code null}.
+     * @param <C>      Command interface type.
+     * @return Keyspace source issuing {@code SCAN} and {@code MGET} through {@code commands}.
+     */
+    static <C extends RedisKeyCommands<byte[], byte[]> & RedisStringCommands<byte[], byte[]>> KeyspaceSource of(C commands) {
+        LettuceAssert.notNull(commands, "Commands must not be null");
+        return new KeyspaceSource() {
+
+            @Override
+            public KeyScanCursor<byte[]> scan(ScanCursor cursor, String match, long count) {
+                return commands.scan(cursor, ScanArgs.Builder.matches(match).limit(count));
+            }
+
+            @Override
+            public List<KeyValue<byte[], byte[]>> mget(List<byte[]> keys) {
+                return commands.mget(keys.toArray(new byte[0][]));
+            }
+        };
+    }
+}
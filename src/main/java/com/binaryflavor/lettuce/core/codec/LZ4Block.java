@@ -0,0 +1,342 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java LZ4 block compressor and decompressor supporting an external dictionary, i.e. a prefix of up to 64 KiB that
+ * matches may reference but that is not part of the compressed block. lz4-java does not expose dictionary compression,
+ * so dictionary mode uses this implementation. Without a dictionary, output is a regular LZ4 block readable by any LZ4
+ * decompressor.
+ */
+final class LZ4Block {
+
+    static final int MAX_DISTANCE = 65535;
+
+    static final int HASH_LOG = 12;
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MFLIMIT = 12;
+
+    private static final int SKIP_STRENGTH = 6;
+
+    private static final int RUN_MASK = 15;
+
+    private static final int ML_MASK = 15;
+
+    private static final ThreadLocal<HashTable> HASH_TABLES = ThreadLocal.withInitial(HashTable::new);
+
+    private LZ4Block() {
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_LOG);
+    }
+
+    static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16
+            | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Builds the hash table of a dictionary, mapping hashes of 4-byte sequences to their last position.
+     */
+    static int[] hashDictionary(byte[] dictionary) {
+        int[] table = new int[1 << HASH_LOG];
+        Arrays.fill(table, -1);
+        for(int i = 0; i + MIN_MATCH <= dictionary.length; i++) {
+            table[hash(readInt(dictionary, i))] = i;
+        }
+        return table;
+    }
+
+    /**
+     * Compresses {@code src} into an LZ4 block whose matches may reference the end of {@code dictionary}.
+     *
+     * @param dictionary      dictionary bytes, at most the last {@link #MAX_DISTANCE} bytes are referenced.
+     * @param dictionaryTable table built by {@link #hashDictionary(byte[])} for {@code dictionary}.
+     * @return the compressed block.
+     */
+    static byte[] compress(byte[] src, byte[] dictionary, int[] dictionaryTable) {
+        int length = src.length;
+        byte[] dst = new byte[maxCompressedLength(length)];
+        int dictLength = dictionary.length;
+        int dp = 0;
+        int anchor = 0;
+
+        if(length >= MFLIMIT + 1) {
+            HashTable hashTable = HASH_TABLES.get();
+            int[] table = hashTable.positions;
+            int base = hashTable.reserve(length);
+
+            int matchLimit = length - LAST_LITERALS;
+            int searchLimit = length - MFLIMIT;
+            int ip = 0;
+            int attempts = 1 << SKIP_STRENGTH;
+
+            while(ip <= searchLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int candidate = table[h] - base;
+                table[h] = base + ip;
+
+                int matchLength = 0;
+                int offset = 0;
+                if(candidate >= 0 && ip - candidate <= MAX_DISTANCE && readInt(src, candidate) == sequence) {
+                    matchLength = MIN_MATCH + count(src, candidate + MIN_MATCH, ip + MIN_MATCH, matchLimit);
+                    offset = ip - candidate;
+                    while(ip > anchor && candidate > 0 && src[ip - 1] == src[candidate - 1]) {
+                        ip--;
+                        candidate--;
+                        matchLength++;
+                    }
+                } else {
+                    int dictCandidate = dictionaryTable[h];
+                    if(dictCandidate >= 0 && ip + dictLength - dictCandidate <= MAX_DISTANCE
+                        && dictCandidate + MIN_MATCH <= dictLength && readInt(dictionary, dictCandidate) == sequence) {
+                        matchLength = MIN_MATCH + countExternal(dictionary, dictCandidate + MIN_MATCH, src, ip + MIN_MATCH,
+                            matchLimit);
+                        offset = ip + dictLength - dictCandidate;
+                        while(ip > anchor && dictCandidate > 0 && src[ip - 1] == dictionary[dictCandidate - 1]) {
+                            ip--;
+                            dictCandidate--;
+                            matchLength++;
+                        }
+                    }
+                }
+
+                if(matchLength == 0) {
+                    ip += attempts++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+
+                attempts = 1 << SKIP_STRENGTH;
+                dp = writeSequence(src, anchor, ip - anchor, offset, matchLength, dst, dp);
+                ip += matchLength;
+                anchor = ip;
+                if(ip - 2 >= 0 && ip - 2 <= searchLimit) {
+                    table[hash(readInt(src, ip - 2))] = base + ip - 2;
+                }
+            }
+        }
+
+        dp = writeLastLiterals(src, anchor, length - anchor, dst, dp);
+        return Arrays.copyOf(dst, dp);
+    }
+
+    /**
+     * Counts matching bytes of {@code src} at {@code match} and {@code ip}, stopping at {@code limit}.
+     */
+    private static int count(byte[] src, int match, int ip, int limit) {
+        int start = ip;
+        while(ip < limit && src[match] == src[ip]) {
+            match++;
+            ip++;
+        }
+        return ip - start;
+    }
+
+    /**
+     * Counts matching bytes between a match starting in the dictionary and {@code ip}. Matches may run past the end of
+     * the dictionary and continue at the start of {@code src}.
+     */
+    private static int countExternal(byte[] dictionary, int match, byte[] src, int ip, int limit) {
+        int start = ip;
+        while(match < dictionary.length && ip < limit && dictionary[match] == src[ip]) {
+            match++;
+            ip++;
+        }
+        if(match == dictionary.length) {
+            ip += count(src, 0, ip, limit);
+        }
+        return ip - start;
+    }
+
+    private static int writeSequence(byte[] src, int literalOffset, int literalLength, int offset, int matchLength,
+        byte[] dst, int dp) {
+        int tokenPosition = dp++;
+        int token;
+        if(literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            dp = writeLength(literalLength - RUN_MASK, dst, dp);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalOffset, dst, dp, literalLength);
+        dp += literalLength;
+
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+
+        int extraMatchLength = matchLength - MIN_MATCH;
+        if(extraMatchLength >= ML_MASK) {
+            token |= ML_MASK;
+            dp = writeLength(extraMatchLength - ML_MASK, dst, dp);
+        } else {
+            token |= extraMatchLength;
+        }
+        dst[tokenPosition] = (byte) token;
+        return dp;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalOffset, int literalLength, byte[] dst, int dp) {
+        if(literalLength >= RUN_MASK) {
+            dst[dp++] = (byte) (RUN_MASK << 4);
+            dp = writeLength(literalLength - RUN_MASK, dst, dp);
+        } else {
+            dst[dp++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalOffset, dst, dp, literalLength);
+        return dp + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dst, int dp) {
+        while(length >= 255) {
+            dst[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dst[dp++] = (byte) length;
+        return dp;
+    }
+
+    /**
+     * Decompresses an LZ4 block whose matches may reference the end of {@code dictionary}.
+     *
+     * @param originalLength exact decompressed length.
+     * @return the decompressed bytes.
+     * @throws IllegalArgumentException if the block is malformed.
+     */
+    static byte[] decompress(byte[] src, int srcOffset, int srcLength, int originalLength, byte[] dictionary) {
+        byte[] dst = new byte[originalLength];
+        if(decompress(src, srcOffset, srcLength, dst, 0, originalLength, dictionary) != originalLength) {
+            throw malformed(srcOffset + srcLength);
+        }
+        return dst;
+    }
+
+    /**
+     * Decompresses an LZ4 block of unknown decompressed length into {@code dst} at {@code dstOffset}. Matches may
+     * reference the end of {@code dictionary}, which immediately precedes {@code dstOffset}.
+     *
+     * @param maxLength maximum decompressed length.
+     * @return the decompressed length.
+     * @throws IllegalArgumentException if the block is malformed or decompresses to more than {@code maxLength} bytes.
+     */
+    static int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int maxLength,
+        byte[] dictionary) {
+        int sp = srcOffset;
+        int srcEnd = srcOffset + srcLength;
+        int dp = dstOffset;
+        int dstEnd = dstOffset + maxLength;
+
+        while(true) {
+            if(sp >= srcEnd) {
+                throw malformed(sp);
+            }
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if(literalLength == RUN_MASK) {
+                int[] result = readLength(src, sp, srcEnd);
+                literalLength += result[0];
+                sp = result[1];
+            }
+            if(literalLength > srcEnd - sp || literalLength > dstEnd - dp) {
+                throw malformed(sp);
+            }
+            System.arraycopy(src, sp, dst, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+
+            if(sp == srcEnd) {
+                return dp - dstOffset;
+            }
+
+            if(srcEnd - sp < 2) {
+                throw malformed(sp);
+            }
+            int offset = (src[sp] & 0xFF) | (src[sp + 1] & 0xFF) << 8;
+            sp += 2;
+
+            int matchLength = token & ML_MASK;
+            if(matchLength == ML_MASK) {
+                int[] result = readLength(src, sp, srcEnd);
+                matchLength += result[0];
+                sp = result[1];
+            }
+            matchLength += MIN_MATCH;
+
+            if(offset == 0 || matchLength > dstEnd - dp) {
+                throw malformed(sp);
+            }
+
+            int match = dp - offset;
+            if(match < dstOffset) {
+                int dictPosition = dictionary.length - (dstOffset - match);
+                if(dictPosition < 0) {
+                    throw malformed(sp);
+                }
+                int fromDictionary = Math.min(matchLength, dstOffset - match);
+                System.arraycopy(dictionary, dictPosition, dst, dp, fromDictionary);
+                dp += fromDictionary;
+                matchLength -= fromDictionary;
+                match = dstOffset;
+            }
+            if(dp - match >= matchLength) {
+                System.arraycopy(dst, match, dst, dp, matchLength);
+                dp += matchLength;
+            } else {
+                for(int i = 0; i < matchLength; i++) {
+                    dst[dp++] = dst[match++];
+                }
+            }
+        }
+    }
+
+    private static int[] readLength(byte[] src, int sp, int srcEnd) {
+        int length = 0;
+        int b;
+        do {
+            if(sp >= srcEnd) {
+                throw malformed(sp);
+            }
+            b = src[sp++] & 0xFF;
+            length += b;
+        } while(b == 255);
+        return new int[] {length, sp};
+    }
+
+    private static IllegalArgumentException malformed(int position) {
+        return new IllegalArgumentException("Malformed LZ4 block at " + position);
+    }
+
+    /**
+     * Per-thread hash table of {@link #compress(byte[], byte[], int[])}, reused instead of allocating and clearing 16 KiB
+     * per value. Positions are stored offset by a base that advances past every compressed input, so entries left by
+     * earlier inputs read as negative positions.
+     */
+    private static final class HashTable {
+
+        private final int[] positions = new int[1 << HASH_LOG];
+        private int base = 1;
+
+        /**
+         * @return Base for the positions of an input of {@code length} bytes.
+         */
+        int reserve(int length) {
+            if(base > Integer.MAX_VALUE - length) {
+                Arrays.fill(positions, 0);
+                base = 1;
+            }
+            int reserved = base;
+            base += length;
+            return reserved;
+        }
+    }
+}
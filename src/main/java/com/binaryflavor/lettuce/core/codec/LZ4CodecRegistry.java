@@ -0,0 +1,389 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Shares codec instances of {@link LZ4CompressionCodecFactory} per delegate codec and configuration, so that every
+ * connection of an application uses the same codec and warm-up covers the configurations actually in use.
+ * <p>
+ * Register the codecs at startup and call {@link #warmUp()} before the first requests. It loads the native LZ4 library
+ * and runs compress/decompress rounds on synthetic payloads, so that the first requests after a deployment don't pay for
+ * library loading, class initialization and interpreted code.
+ *
+ * <pre class="code">
+ * LZ4CodecRegistry codecs = LZ4CodecRegistry.shared();
+ * RedisCodec&lt;String, String&gt; codec = codecs.fastest(StringCodec.UTF8);
+ * codecs.warmUp();
+ * </pre>
+ *
+ * Registered codecs are kept until {@link #clear()}; delegates are compared with {@link Object#equals(Object)}.
+ */
+public final class LZ4CodecRegistry {
+
+    /**
+     * Default number of compress/decompress rounds per configuration run by {@link #warmUp()}.
+     */
+    public static final int DEFAULT_WARM_UP_ROUNDS = 10_000;
+
+    private static final LZ4CodecRegistry SHARED = new LZ4CodecRegistry();
+
+    private static final int[] WARM_UP_SIZES = {64, 1024, 16 * 1024};
+
+    private final ConcurrentMap<Key, RedisCodec<?, ?>> codecs = new ConcurrentHashMap<>();
+
+    private LZ4CodecRegistry() {
+    }
+
+    /**
+     * @return Registry shared by the whole JVM.
+     */
+    public static LZ4CodecRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return New empty registry, e.g. for codecs of a single client.
+     */
+    public static LZ4CodecRegistry create() {
+        return new LZ4CodecRegistry();
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#fastest(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> fastest(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.FASTEST, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#safest(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> safest(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.SAFEST, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#nativeInstance(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> nativeInstance(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.NATIVE, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#unsafeInstance(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> unsafeInstance(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.UNSAFE, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#vectorizedInstance(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> vectorizedInstance(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.VECTORIZED, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#highCompression(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> highCompression(RedisCodec<K, V> delegate) {
+        return highCompression(delegate, LZ4CompressionCodecFactory.DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param level    HC compression level, between {@code 1} and
+     *                 {@link LZ4CompressionCodecFactory#MAX_COMPRESSION_LEVEL}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#highCompression(RedisCodec, int)}.
+     */
+    public <K, V> RedisCodec<K, V> highCompression(RedisCodec<K, V> delegate, int level) {
+        return codec(delegate, Configuration.HIGH_COMPRESSION, level);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param filter   pre-filter applied before compression, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#filtered(RedisCodec, ByteFilter)}.
+     */
+    public <K, V> RedisCodec<K, V> filtered(RedisCodec<K, V> delegate, ByteFilter filter) {
+        LettuceAssert.notNull(filter, "ByteFilter must not be null");
+        return codec(delegate, Configuration.FILTERED, filter);
+    }
+
+    /**
+     * @param delegate     codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param dictionaries dictionaries used for compression and decompression, must not be {@code null}.
+     * @param <K>          Key type.
+     * @param <V>          Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#dictionary(RedisCodec, LZ4DictionaryRegistry)}.
+     */
+    public <K, V> RedisCodec<K, V> dictionary(RedisCodec<K, V> delegate, LZ4DictionaryRegistry dictionaries) {
+        LettuceAssert.notNull(dictionaries, "LZ4DictionaryRegistry must not be null");
+        return codec(delegate, Configuration.DICTIONARY, dictionaries);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#uncompressed(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> uncompressed(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.UNCOMPRESSED, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#listpack(RedisCodec)}, all users of which count into the
+     * same {@link ListpackTarget}.
+     */
+    public <K, V> RedisCodec<K, V> listpack(RedisCodec<K, V> delegate) {
+        return codec(delegate, Configuration.LISTPACK, null);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param target   target element size and counters, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#listpack(RedisCodec, ListpackTarget)}.
+     */
+    public <K, V> RedisCodec<K, V> listpack(RedisCodec<K, V> delegate, ListpackTarget target) {
+        LettuceAssert.notNull(target, "ListpackTarget must not be null");
+        return codec(delegate, Configuration.LISTPACK, target);
+    }
+
+    /**
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#frame(RedisCodec)}.
+     */
+    public <K, V> RedisCodec<K, V> frame(RedisCodec<K, V> delegate) {
+        return frame(delegate, LZ4FrameFormat.defaults());
+    }
+
+    /**
+     * @param delegate    codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param frameFormat frame options, must not be {@code null}.
+     * @param <K>         Key type.
+     * @param <V>         Value type.
+     * @return Shared codec of {@link LZ4CompressionCodecFactory#frame(RedisCodec, LZ4FrameFormat)}.
+     */
+    public <K, V> RedisCodec<K, V> frame(RedisCodec<K, V> delegate, LZ4FrameFormat frameFormat) {
+        LettuceAssert.notNull(frameFormat, "LZ4FrameFormat must not be null");
+        return codec(delegate, Configuration.FRAME, frameFormat);
+    }
+
+    /**
+     * @return Number of registered codecs.
+     */
+    public int size() {
+        return codecs.size();
+    }
+
+    /**
+     * Removes all registered codecs. Codecs already in use keep working.
+     */
+    public void clear() {
+        codecs.clear();
+    }
+
+    /**
+     * Warms up with {@link #DEFAULT_WARM_UP_ROUNDS} rounds per configuration.
+     *
+     * @see #warmUp(int)
+     */
+    public void warmUp() {
+        warmUp(DEFAULT_WARM_UP_ROUNDS);
+    }
+
+    /**
+     * Loads the native LZ4 library and runs {@code rounds} compress/decompress rounds on synthetic payloads of 64 B to
+     * 16 KiB for the fastest configuration and every registered codec, so that the JIT compiles the codec paths before
+     * the first requests. Payloads are read by the delegate of each registered codec, falling back to raw bytes for
+     * delegates that can't read them. Warm-up runs on fresh codecs of the same configurations, so registered codecs and
+     * their {@link ListpackTarget} counters are not touched.
+     *
+     * @param rounds number of rounds per codec, must be greater than {@code 0}.
+     * @throws IllegalStateException if a round trip does not reproduce its value.
+     */
+    public void warmUp(int rounds) {
+        LettuceAssert.isTrue(rounds > 0, "Warm-up rounds must be greater than 0");
+        byte[][] payloads = payloads();
+
+        warmUp(ByteArrayCodec.INSTANCE, Configuration.FASTEST, null, payloads, rounds);
+        for(Key key : codecs.keySet()) {
+            warmUp(key.delegate, key.configuration, key.option, payloads, rounds);
+        }
+    }
+
+    private static <K, V> void warmUp(RedisCodec<K, V> delegate, Configuration configuration, Object option,
+        byte[][] payloads, int rounds) {
+        List<V> values = new ArrayList<>(payloads.length);
+        try {
+            for(byte[] payload : payloads) {
+                values.add(delegate.decodeValue(ByteBuffer.wrap(payload)));
+            }
+        } catch(RuntimeException e) {
+            warmUp(ByteArrayCodec.INSTANCE, configuration, option, payloads, rounds);
+            return;
+        }
+
+        RedisCodec<K, V> codec = configuration.create(delegate, warmUpOption(option));
+        List<ByteBuffer> expected = new ArrayList<>(values.size());
+        for(V value : values) {
+            expected.add(delegate.encodeValue(value));
+        }
+        for(int i = 0; i < rounds; i++) {
+            int index = i % values.size();
+            V decoded = codec.decodeValue(codec.encodeValue(values.get(index)));
+            if(!expected.get(index).equals(delegate.encodeValue(decoded))) {
+                throw new IllegalStateException("Warm-up round trip failed for " + configuration);
+            }
+        }
+    }
+
+    /**
+     * Listpack targets count every value, so warm-up uses a target of its own.
+     */
+    private static Object warmUpOption(Object option) {
+        if(option instanceof ListpackTarget) {
+            return ListpackTarget.of(((ListpackTarget) option).maxElementSize());
+        }
+        return option;
+    }
+
+    /**
+     * JSON-like payloads of {@link #WARM_UP_SIZES} plus an incompressible one, covering compressed and stored values.
+     */
+    private static byte[][] payloads() {
+        Random random = new Random(42);
+        byte[][] payloads = new byte[WARM_UP_SIZES.length + 1][];
+        for(int i = 0; i < WARM_UP_SIZES.length; i++) {
+            StringBuilder json = new StringBuilder();
+            while(json.length() < WARM_UP_SIZES[i]) {
+                json.append("{\"id\":").append(random.nextInt(1_000_000)).append(",\"active\":")
+                    .append(random.nextBoolean()).append("},");
+            }
+            payloads[i] = json.substring(0, WARM_UP_SIZES[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        payloads[WARM_UP_SIZES.length] = new byte[1024];
+        random.nextBytes(payloads[WARM_UP_SIZES.length]);
+        return payloads;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> RedisCodec<K, V> codec(RedisCodec<K, V> delegate, Configuration configuration, Object option) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        return (RedisCodec<K, V>) codecs.computeIfAbsent(new Key(delegate, configuration, option),
+            key -> configuration.create(delegate, option));
+    }
+
+    @Override
+    public String toString() {
+        return "LZ4CodecRegistry[codecs=" + codecs.size() + "]";
+    }
+
+    /**
+     * Factory methods of {@link LZ4CompressionCodecFactory}; {@code null} options select the factory method defaults.
+     */
+    private enum Configuration {
+
+        FASTEST, SAFEST, NATIVE, UNSAFE, VECTORIZED, HIGH_COMPRESSION, FILTERED, DICTIONARY, UNCOMPRESSED, LISTPACK, FRAME;
+
+        <K, V> RedisCodec<K, V> create(RedisCodec<K, V> delegate, Object option) {
+            switch(this) {
+                case FASTEST:
+                    return LZ4CompressionCodecFactory.fastest(delegate);
+                case SAFEST:
+                    return LZ4CompressionCodecFactory.safest(delegate);
+                case NATIVE:
+                    return LZ4CompressionCodecFactory.nativeInstance(delegate);
+                case UNSAFE:
+                    return LZ4CompressionCodecFactory.unsafeInstance(delegate);
+                case VECTORIZED:
+                    return LZ4CompressionCodecFactory.vectorizedInstance(delegate);
+                case HIGH_COMPRESSION:
+                    return LZ4CompressionCodecFactory.highCompression(delegate, (Integer) option);
+                case FILTERED:
+                    return LZ4CompressionCodecFactory.filtered(delegate, (ByteFilter) option);
+                case DICTIONARY:
+                    return LZ4CompressionCodecFactory.dictionary(delegate, (LZ4DictionaryRegistry) option);
+                case UNCOMPRESSED:
+                    return LZ4CompressionCodecFactory.uncompressed(delegate);
+                case LISTPACK:
+                    return option == null ? LZ4CompressionCodecFactory.listpack(delegate)
+                        : LZ4CompressionCodecFactory.listpack(delegate, (ListpackTarget) option);
+                default:
+                    return LZ4CompressionCodecFactory.frame(delegate, (LZ4FrameFormat) option);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final RedisCodec<?, ?> delegate;
+        private final Configuration configuration;
+        private final Object option;
+
+        Key(RedisCodec<?, ?> delegate, Configuration configuration, Object option) {
+            this.delegate = delegate;
+            this.configuration = configuration;
+            this.option = option;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return Objects.equals(delegate, that.delegate) && configuration == that.configuration
+                && Objects.equals(option, that.option);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(delegate, configuration, option);
+        }
+    }
+}
@@ -7,14 +7,80 @@ import net.jpountz.lz4.LZ4FastDecompressor;
 
 import io.lettuce.core.codec.RedisCodec;
 
-public class LZ4CompressingCodec implements RedisCodec<Object, Object> {
+/**
+ * {@link RedisCodec} compressing values of a delegate codec with LZ4. Keys are passed through to the delegate unchanged.
+ * <p>
+ * Values are written in a compact layout private to this library unless a {@link LZ4FrameFormat} is given, in which case
+ * they are written as standard LZ4 frames readable by other languages.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class LZ4CompressingCodec<K, V> implements RedisCodec<K, V> {
     private static final int ORIGINAL_LENGTH_HEADER_SIZE = Integer.SIZE / 8;
 
-    private final RedisCodec<Object, Object> delegate;
+    /**
+     * Set on the first byte of values using the extended header {@code [flags][options][int length][LZ4 block]}. Values
+     * using the original {@code [int length][LZ4 block]} layout start with a non-negative length and never have it set.
+     */
+    private static final byte EXTENDED_HEADER = (byte) 0x80;
+
+    private static final byte FLAG_FILTERED = 0x01;
+
+    private static final byte FLAG_DICTIONARY = 0x02;
+
+    /**
+     * Marks values stored uncompressed right after the header, written by codecs with a {@link ListpackTarget}.
+     */
+    private static final byte FLAG_STORED = 0x04;
+
+    private static final byte KNOWN_FLAGS = EXTENDED_HEADER | FLAG_FILTERED | FLAG_DICTIONARY | FLAG_STORED;
+
+    private static final int DICTIONARY_ID_SIZE = Integer.SIZE / 8;
+
+    private final RedisCodec<K, V> delegate;
     private final LZ4Compressor compressor;
     private final LZ4FastDecompressor decompressor;
+    private final ByteFilter filter;
+    private final LZ4DictionaryRegistry dictionaries;
+    private final ListpackTarget listpack;
+    private final LZ4FrameFormat frameFormat;
 
-    public LZ4CompressingCodec(RedisCodec<Object, Object> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor) {
+    public LZ4CompressingCodec(RedisCodec<K, V> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor) {
+        this(delegate, compressor, decompressor, null);
+    }
+
+    public LZ4CompressingCodec(RedisCodec<K, V> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor,
+        ByteFilter filter) {
+        this(delegate, compressor, decompressor, filter, null);
+    }
+
+    public LZ4CompressingCodec(RedisCodec<K, V> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor,
+        ByteFilter filter, LZ4DictionaryRegistry dictionaries) {
+        this(delegate, compressor, decompressor, filter, dictionaries, null);
+    }
+
+    public LZ4CompressingCodec(RedisCodec<K, V> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor,
+        ByteFilter filter, LZ4DictionaryRegistry dictionaries, ListpackTarget listpack) {
+        this(delegate, compressor, decompressor, filter, dictionaries, listpack, null);
+    }
+
+    /**
+     * Creates a codec writing values as LZ4 frames. Values written in the layout of other codecs are still decoded.
+     * <p>
+     * A value of another codec is taken for a frame if it starts with the frame magic number, which other codecs only write
+     * for values of exactly {@code 0x04224D18} (69,356,824) bytes.
+     */
+    public static <K, V> LZ4CompressingCodec<K, V> frame(RedisCodec<K, V> delegate, LZ4Compressor compressor,
+        LZ4FastDecompressor decompressor, LZ4FrameFormat frameFormat) {
+        if (frameFormat == null) {
+            throw new NullPointerException("LZ4FrameFormat must not be null");
+        }
+        return new LZ4CompressingCodec<>(delegate, compressor, decompressor, null, null, null, frameFormat);
+    }
+
+    private LZ4CompressingCodec(RedisCodec<K, V> delegate, LZ4Compressor compressor, LZ4FastDecompressor decompressor,
+        ByteFilter filter, LZ4DictionaryRegistry dictionaries, ListpackTarget listpack, LZ4FrameFormat frameFormat) {
         if (delegate == null) {
             throw new NullPointerException("Delegate codec must not be null");
         }
@@ -27,15 +93,19 @@ public class LZ4CompressingCodec implements RedisCodec<Object, Object> {
         this.delegate = delegate;
         this.compressor = compressor;
         this.decompressor = decompressor;
+        this.filter = filter;
+        this.dictionaries = dictionaries;
+        this.listpack = listpack;
+        this.frameFormat = frameFormat;
     }
 
     @Override
-    public Object decodeKey(ByteBuffer bytes) {
+    public K decodeKey(ByteBuffer bytes) {
         return delegate.decodeKey(bytes);
     }
 
     @Override
-    public Object decodeValue(ByteBuffer bytes) {
+    public V decodeValue(ByteBuffer bytes) {
         if(!bytes.hasRemaining()) {
             return delegate.decodeValue(bytes);
         }
@@ -44,13 +114,44 @@ public class LZ4CompressingCodec implements RedisCodec<Object, Object> {
             byte[] data = new byte[bytes.remaining()];
             bytes.get(data);
 
+            if(frameFormat != null && LZ4FrameFormat.isFrame(data)) {
+                return delegate.decodeValue(ByteBuffer.wrap(LZ4FrameFormat.decode(data)));
+            }
+
             ByteBuffer buffer = ByteBuffer.wrap(data);
-            int originalLength = buffer.getInt();
+            ByteFilter valueFilter = null;
+            LZ4Dictionary dictionary = null;
+            byte flags = 0;
+            if((data[0] & EXTENDED_HEADER) != 0) {
+                flags = buffer.get();
+                if((flags & ~KNOWN_FLAGS) != 0) {
+                    throw new IllegalArgumentException("Unsupported header flags: " + flags);
+                }
+                if((flags & FLAG_FILTERED) != 0) {
+                    valueFilter = ByteFilter.read(buffer);
+                }
+                if((flags & FLAG_DICTIONARY) != 0) {
+                    dictionary = lookupDictionary(buffer.getInt());
+                }
+            }
 
-            byte[] compressed = new byte[buffer.remaining()];
-            buffer.get(compressed);
+            byte[] decompressed;
+            if((flags & FLAG_STORED) != 0) {
+                decompressed = new byte[buffer.remaining()];
+                buffer.get(decompressed);
+            } else if(dictionary != null) {
+                int originalLength = buffer.getInt();
+                decompressed = dictionary.decompress(data, buffer.position(), buffer.remaining(), originalLength);
+            } else {
+                int originalLength = buffer.getInt();
+                byte[] compressed = new byte[buffer.remaining()];
+                buffer.get(compressed);
 
-            byte[] decompressed = decompressor.decompress(compressed, originalLength);
+                decompressed = decompressor.decompress(compressed, originalLength);
+            }
+            if(valueFilter != null) {
+                decompressed = valueFilter.reverse(decompressed);
+            }
             return delegate.decodeValue(ByteBuffer.wrap(decompressed));
         } catch(Exception e) {
             throw new RuntimeException("Failed to decompress value", e);
@@ -58,14 +159,17 @@ public class LZ4CompressingCodec implements RedisCodec<Object, Object> {
     }
 
     @Override
-    public ByteBuffer encodeKey(Object key) {
+    public ByteBuffer encodeKey(K key) {
         return delegate.encodeKey(key);
     }
 
     @Override
-    public ByteBuffer encodeValue(Object value) {
+    public ByteBuffer encodeValue(V value) {
         ByteBuffer encoded = delegate.encodeValue(value);
-        if(!encoded.hasRemaining()) {
+        if(!encoded.hasRemaining() && frameFormat == null) {
+            if(listpack != null) {
+                listpack.record(0);
+            }
             return encoded;
         }
 
@@ -73,16 +177,112 @@ public class LZ4CompressingCodec implements RedisCodec<Object, Object> {
             byte[] originalData = new byte[encoded.remaining()];
             encoded.get(originalData);
 
-            byte[] compressed = compressor.compress(originalData);
-
-            ByteBuffer buffer = ByteBuffer.allocate(ORIGINAL_LENGTH_HEADER_SIZE + compressed.length);
-            buffer.putInt(originalData.length);
-            buffer.put(compressed);
-            buffer.flip();
-
-            return buffer;
+            if(frameFormat != null) {
+                return ByteBuffer.wrap(frameFormat.encode(originalData, compressor));
+            }
+            if(listpack != null) {
+                return encodeListpack(originalData);
+            }
+            return compress(originalData);
         } catch(Exception e) {
             throw new RuntimeException("Failed to compress value", e);
         }
     }
+
+    private ByteBuffer compress(byte[] originalData) {
+        if(filter != null || dictionaries != null) {
+            return encodeExtended(originalData);
+        }
+
+        byte[] compressed = compressor.compress(originalData);
+
+        ByteBuffer buffer = ByteBuffer.allocate(ORIGINAL_LENGTH_HEADER_SIZE + compressed.length);
+        buffer.putInt(originalData.length);
+        buffer.put(compressed);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Stores {@code originalData} uncompressed if that fits the listpack target, otherwise compresses it and keeps
+     * whichever encoding is smaller.
+     */
+    private ByteBuffer encodeListpack(byte[] originalData) {
+        int storedSize = 1 + originalData.length;
+        if(listpack.fits(storedSize)) {
+            listpack.record(storedSize);
+            return store(originalData);
+        }
+
+        ByteBuffer compressed = compress(originalData);
+        if(compressed.remaining() < storedSize) {
+            listpack.record(compressed.remaining());
+            return compressed;
+        }
+        listpack.record(storedSize);
+        return store(originalData);
+    }
+
+    private static ByteBuffer store(byte[] originalData) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + originalData.length);
+        buffer.put((byte) (EXTENDED_HEADER | FLAG_STORED));
+        buffer.put(originalData);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * @return Dictionaries values are compressed and decompressed with, or {@code null}.
+     */
+    LZ4DictionaryRegistry dictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * @return Format of the LZ4 frames written and read, or {@code null} if the codec doesn't read frames.
+     */
+    LZ4FrameFormat frameFormat() {
+        return frameFormat;
+    }
+
+    private LZ4Dictionary lookupDictionary(int id) {
+        LZ4Dictionary dictionary = dictionaries == null ? null : dictionaries.get(id);
+        if(dictionary == null) {
+            throw new IllegalStateException("Unknown dictionary ID: " + id);
+        }
+        return dictionary;
+    }
+
+    private ByteBuffer encodeExtended(byte[] originalData) {
+        byte[] data = filter == null ? originalData : filter.apply(originalData);
+        LZ4Dictionary dictionary = dictionaries == null ? null : dictionaries.active();
+        byte[] compressed = dictionary == null ? compressor.compress(data) : dictionary.compress(data);
+
+        byte flags = EXTENDED_HEADER;
+        int headerSize = 1 + ORIGINAL_LENGTH_HEADER_SIZE;
+        if(filter != null) {
+            flags |= FLAG_FILTERED;
+            headerSize += ByteFilter.SERIALIZED_SIZE;
+        }
+        if(dictionary != null) {
+            flags |= FLAG_DICTIONARY;
+            headerSize += DICTIONARY_ID_SIZE;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + compressed.length);
+        buffer.put(flags);
+        if(filter != null) {
+            filter.write(buffer);
+        }
+        if(dictionary != null) {
+            buffer.putInt(dictionary.id());
+        }
+        buffer.putInt(originalData.length);
+        buffer.put(compressed);
+        buffer.flip();
+
+        return buffer;
+    }
 }
@@ -7,9 +7,27 @@ import io.lettuce.core.internal.LettuceAssert;
 
 public class LZ4CompressionCodecFactory {
 
+    /**
+     * Default LZ4 HC compression level, same as the level used by {@code LZ4Factory#highCompressor()}.
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 9;
+
+    /**
+     * Highest LZ4 HC compression level supported by lz4-java.
+     */
+    public static final int MAX_COMPRESSION_LEVEL = 17;
+
     private LZ4CompressionCodecFactory() {
     }
 
+    /**
+     * @return Fastest available LZ4 instance, resolved once. {@link LZ4Factory#fastestInstance()} takes a lock on every
+     * call and retries loading the native library each time it is unavailable.
+     */
+    static LZ4Factory fastestFactory() {
+        return Fastest.INSTANCE;
+    }
+
     /**
      * Creates a value compressor using the fastest available LZ4 instance.
      *
@@ -18,11 +36,10 @@ public class LZ4CompressionCodecFactory {
      * @param <V>      Value type.
      * @return Value-compressing codec using fastest LZ4.
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public static <K, V> RedisCodec<K, V> fastest(RedisCodec<K, V> delegate) {
         LettuceAssert.notNull(delegate, "RedisCodec must not be null");
-        LZ4Factory factory = LZ4Factory.fastestInstance();
-        return (RedisCodec) new LZ4CompressingCodec((RedisCodec) delegate, factory.fastCompressor(), factory.fastDecompressor());
+        LZ4Factory factory = fastestFactory();
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor());
     }
 
     /**
@@ -33,11 +50,10 @@ public class LZ4CompressionCodecFactory {
      * @param <V>      Value type.
      * @return Value-compressing codec using safest LZ4.
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public static <K, V> RedisCodec<K, V> safest(RedisCodec<K, V> delegate) {
         LettuceAssert.notNull(delegate, "RedisCodec must not be null");
         LZ4Factory factory = LZ4Factory.safeInstance();
-        return (RedisCodec) new LZ4CompressingCodec((RedisCodec) delegate, factory.fastCompressor(), factory.fastDecompressor());
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor());
     }
 
     /**
@@ -48,11 +64,10 @@ public class LZ4CompressionCodecFactory {
      * @param <V>      Value type.
      * @return Value-compressing codec using native LZ4.
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public static <K, V> RedisCodec<K, V> nativeInstance(RedisCodec<K, V> delegate) {
         LettuceAssert.notNull(delegate, "RedisCodec must not be null");
         LZ4Factory factory = LZ4Factory.nativeInstance();
-        return (RedisCodec) new LZ4CompressingCodec((RedisCodec) delegate, factory.fastCompressor(), factory.fastDecompressor());
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor());
     }
 
     /**
@@ -63,10 +78,178 @@ public class LZ4CompressionCodecFactory {
      * @param <V>      Value type.
      * @return Value-compressing codec using unsafe LZ4.
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public static <K, V> RedisCodec<K, V> unsafeInstance(RedisCodec<K, V> delegate) {
         LettuceAssert.notNull(delegate, "RedisCodec must not be null");
         LZ4Factory factory = LZ4Factory.unsafeInstance();
-        return (RedisCodec) new LZ4CompressingCodec((RedisCodec) delegate, factory.fastCompressor(), factory.fastDecompressor());
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor());
+    }
+
+    /**
+     * Creates a value compressor using the pure-Java {@link LZ4VectorizedEngine}, which needs neither JNI nor
+     * {@code sun.misc.Unsafe} and is faster than the safe instance, especially when decompressing. Compressed values are
+     * identical to those of {@link #safest(RedisCodec)}.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec using the vectorized pure-Java engine.
+     */
+    public static <K, V> RedisCodec<K, V> vectorizedInstance(RedisCodec<K, V> delegate) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        return new LZ4CompressingCodec<>(delegate, LZ4VectorizedEngine.compressor(), LZ4VectorizedEngine.fastDecompressor());
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance with the high compression (HC) compressor at the
+     * default compression level.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec using LZ4 HC.
+     */
+    public static <K, V> RedisCodec<K, V> highCompression(RedisCodec<K, V> delegate) {
+        return highCompression(delegate, DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance with the high compression (HC) compressor at the
+     * given compression level. Values written by this codec are decoded by any other codec of this factory.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param level    HC compression level, between {@code 1} and {@link #MAX_COMPRESSION_LEVEL}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec using LZ4 HC.
+     */
+    public static <K, V> RedisCodec<K, V> highCompression(RedisCodec<K, V> delegate, int level) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.isTrue(level >= 1 && level <= MAX_COMPRESSION_LEVEL,
+            "Compression level must be between 1 and " + MAX_COMPRESSION_LEVEL);
+        LZ4Factory factory = fastestFactory();
+        return new LZ4CompressingCodec<>(delegate, factory.highCompressor(level), factory.fastDecompressor());
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance that runs {@code filter} over the encoded value
+     * before compression. Suited to values holding numeric arrays; the filter is recorded in each value, so values are
+     * decoded by any other codec of this factory.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param filter   pre-filter applied before compression, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec applying {@code filter}.
+     */
+    public static <K, V> RedisCodec<K, V> filtered(RedisCodec<K, V> delegate, ByteFilter filter) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.notNull(filter, "ByteFilter must not be null");
+        LZ4Factory factory = fastestFactory();
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor(), filter);
+    }
+
+    /**
+     * Creates a value compressor that compresses values with the active dictionary of {@code dictionaries}, greatly
+     * improving the ratio of small values that share content such as JSON field names. Values compressed with any
+     * registered dictionary and values written by other codecs of this factory are decoded.
+     *
+     * @param delegate     codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param dictionaries dictionaries used for compression and decompression, must not be {@code null}.
+     * @param <K>          Key type.
+     * @param <V>          Value type.
+     * @return Value-compressing codec using shared dictionaries.
+     */
+    public static <K, V> RedisCodec<K, V> dictionary(RedisCodec<K, V> delegate, LZ4DictionaryRegistry dictionaries) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.notNull(dictionaries, "LZ4DictionaryRegistry must not be null");
+        LZ4Factory factory = fastestFactory();
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor(), null, dictionaries);
+    }
+
+    /**
+     * Creates a codec storing values uncompressed behind a one-byte marker, for values not worth compressing such as
+     * short-lived sessions. Values are decoded by any other codec of this factory, and values of other codecs are decoded.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Codec storing values uncompressed.
+     */
+    public static <K, V> RedisCodec<K, V> uncompressed(RedisCodec<K, V> delegate) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LZ4Factory factory = fastestFactory();
+        // every value fits an unbounded listpack target, so each one is stored as is
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor(), null, null,
+            ListpackTarget.of(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Creates a value compressor keeping values within {@link ListpackTarget#DEFAULT_MAX_ELEMENT_SIZE} bytes where
+     * possible, so small hashes and sorted sets stay in Redis' listpack encoding.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec aiming for the default listpack element size.
+     * @see #listpack(RedisCodec, ListpackTarget)
+     */
+    public static <K, V> RedisCodec<K, V> listpack(RedisCodec<K, V> delegate) {
+        return listpack(delegate, ListpackTarget.create());
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance that keeps values within the element size of
+     * {@code target} where possible. Values fitting uncompressed are stored behind a one-byte marker, larger values are
+     * compressed and stored uncompressed again if compression does not pay off. {@code target} counts the values that
+     * fit and those that don't. Values are decoded by any other codec of this factory.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param target   target element size and counters, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec aiming for the element size of {@code target}.
+     */
+    public static <K, V> RedisCodec<K, V> listpack(RedisCodec<K, V> delegate, ListpackTarget target) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.notNull(target, "ListpackTarget must not be null");
+        LZ4Factory factory = fastestFactory();
+        return new LZ4CompressingCodec<>(delegate, factory.fastCompressor(), factory.fastDecompressor(), null, null, target);
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance that writes values as standard LZ4 frames with
+     * the {@link LZ4FrameFormat#defaults() default options}.
+     *
+     * @param delegate codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param <K>      Key type.
+     * @param <V>      Value type.
+     * @return Value-compressing codec writing LZ4 frames.
+     * @see #frame(RedisCodec, LZ4FrameFormat)
+     */
+    public static <K, V> RedisCodec<K, V> frame(RedisCodec<K, V> delegate) {
+        return frame(delegate, LZ4FrameFormat.defaults());
+    }
+
+    /**
+     * Creates a value compressor using the fastest available LZ4 instance that writes values as standard LZ4 frames, so
+     * that LZ4 frame implementations of other languages can read and write the same keys. Frames written by other
+     * implementations and values written by other codecs of this factory are decoded.
+     *
+     * @param delegate    codec used for key-value encoding/decoding, must not be {@code null}.
+     * @param frameFormat frame options, must not be {@code null}.
+     * @param <K>         Key type.
+     * @param <V>         Value type.
+     * @return Value-compressing codec writing LZ4 frames.
+     */
+    public static <K, V> RedisCodec<K, V> frame(RedisCodec<K, V> delegate, LZ4FrameFormat frameFormat) {
+        LettuceAssert.notNull(delegate, "RedisCodec must not be null");
+        LettuceAssert.notNull(frameFormat, "LZ4FrameFormat must not be null");
+        LZ4Factory factory = fastestFactory();
+        return LZ4CompressingCodec.frame(delegate, factory.fastCompressor(), factory.fastDecompressor(), frameFormat);
+    }
+
+    private static final class Fastest {
+
+        static final LZ4Factory INSTANCE = LZ4Factory.fastestInstance();
     }
 }
@@ -0,0 +1,83 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.util.Arrays;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Shared LZ4 dictionary identified by a numeric ID. Small values are compressed with the dictionary as an external prefix,
+ * so repeated content such as JSON field names is encoded as matches into the dictionary instead of literals.
+ * <p>
+ * LZ4 matches reach back at most 64 KiB, so only the last {@link #MAX_SIZE} bytes of longer dictionaries are kept. The
+ * ID is stored in every value compressed with the dictionary; once values are written, the dictionary bytes behind an ID
+ * must never change.
+ *
+ * @see LZ4DictionaryTrainer
+ * @see LZ4DictionaryRegistry
+ */
+public final class LZ4Dictionary {
+
+    /**
+     * Maximum useful dictionary size.
+     */
+    public static final int MAX_SIZE = LZ4Block.MAX_DISTANCE;
+
+    private final int id;
+    private final byte[] content;
+    private final int[] table;
+
+    private LZ4Dictionary(int id, byte[] content) {
+        this.id = id;
+        this.content = content;
+        this.table = LZ4Block.hashDictionary(content);
+    }
+
+    /**
+     * Creates a dictionary.
+     *
+     * @param id      dictionary ID, must not be negative.
+     * @param content dictionary bytes, must not be {@code null} or empty. The most valuable content should be at the end.
+     * @return a new {@link LZ4Dictionary}.
+     */
+    public static LZ4Dictionary of(int id, byte[] content) {
+        LettuceAssert.isTrue(id >= 0, "Dictionary ID must not be negative");
+        LettuceAssert.notNull(content, "Dictionary content must not be null");
+        LettuceAssert.isTrue(content.length > 0, "Dictionary content must not be empty");
+        int from = Math.max(0, content.length - MAX_SIZE);
+        return new LZ4Dictionary(id, Arrays.copyOfRange(content, from, content.length));
+    }
+
+    /**
+     * @return Dictionary ID.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return Copy of the dictionary bytes.
+     */
+    public byte[] content() {
+        return content.clone();
+    }
+
+    /**
+     * @return Dictionary size in bytes.
+     */
+    public int size() {
+        return content.length;
+    }
+
+    byte[] compress(byte[] data) {
+        return LZ4Block.compress(data, content, table);
+    }
+
+    byte[] decompress(byte[] compressed, int offset, int length, int originalLength) {
+        return LZ4Block.decompress(compressed, offset, length, originalLength, content);
+    }
+
+    @Override
+    public String toString() {
+        return "LZ4Dictionary[id=" + id + ", size=" + content.length + "]";
+    }
+}
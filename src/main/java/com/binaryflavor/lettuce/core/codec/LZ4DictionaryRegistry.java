@@ -0,0 +1,138 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Set of {@link LZ4Dictionary dictionaries} known to a codec. New values are compressed with the active dictionary; values
+ * compressed with any registered dictionary are decoded. Keep retired dictionaries registered for as long as values
+ * written with them may still be read.
+ * <p>
+ * Typically built once at startup, e.g. from a directory of dictionary files:
+ *
+ * <pre class="code">
+ * LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder().load(Paths.get("/etc/app/dictionaries")).build();
+ * </pre>
+ */
+public final class LZ4DictionaryRegistry {
+
+    /**
+     * File name extension of dictionary files read by {@link Builder#load(Path)}.
+     */
+    public static final String FILE_EXTENSION = ".lz4dict";
+
+    private final Map<Integer, LZ4Dictionary> dictionaries;
+    private final LZ4Dictionary active;
+
+    private LZ4DictionaryRegistry(Map<Integer, LZ4Dictionary> dictionaries, LZ4Dictionary active) {
+        this.dictionaries = Collections.unmodifiableMap(dictionaries);
+        this.active = active;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Dictionary used to compress new values.
+     */
+    public LZ4Dictionary active() {
+        return active;
+    }
+
+    /**
+     * @param id dictionary ID.
+     * @return Dictionary registered under {@code id}, or {@code null} if there is none.
+     */
+    public LZ4Dictionary get(int id) {
+        return dictionaries.get(id);
+    }
+
+    /**
+     * @return All registered dictionaries.
+     */
+    public Collection<LZ4Dictionary> dictionaries() {
+        return dictionaries.values();
+    }
+
+    /**
+     * Builder for {@link LZ4DictionaryRegistry}.
+     */
+    public static final class Builder {
+
+        private final Map<Integer, LZ4Dictionary> dictionaries = new HashMap<>();
+        private Integer activeId;
+
+        private Builder() {
+        }
+
+        /**
+         * Registers a dictionary.
+         *
+         * @param dictionary dictionary, must not be {@code null} and its ID must not be registered yet.
+         * @return {@code this}.
+         */
+        public Builder register(LZ4Dictionary dictionary) {
+            LettuceAssert.notNull(dictionary, "LZ4Dictionary must not be null");
+            LettuceAssert.isTrue(!dictionaries.containsKey(dictionary.id()),
+                () -> "Dictionary ID " + dictionary.id() + " is already registered");
+            dictionaries.put(dictionary.id(), dictionary);
+            return this;
+        }
+
+        /**
+         * Registers every {@code <id>.lz4dict} file of {@code directory}, using the file name as dictionary ID.
+         *
+         * @param directory directory holding dictionary files, must not be {@code null}.
+         * @return {@code this}.
+         * @throws IOException              if the directory or a dictionary file cannot be read.
+         * @throws IllegalArgumentException if the ID in a file name exceeds {@link Integer#MAX_VALUE}.
+         */
+        public Builder load(Path directory) throws IOException {
+            LettuceAssert.notNull(directory, "Directory must not be null");
+            try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+                for(Path file : files) {
+                    String name = file.getFileName().toString();
+                    String id = name.substring(0, name.length() - FILE_EXTENSION.length());
+                    if(!id.matches("\\d+")) {
+                        throw new IOException("Dictionary file name must be <id>" + FILE_EXTENSION + ": " + file);
+                    }
+                    int parsed;
+                    try {
+                        parsed = Integer.parseInt(id);
+                    } catch(NumberFormatException e) {
+                        throw new IllegalArgumentException("Dictionary ID exceeds " + Integer.MAX_VALUE + ": " + file, e);
+                    }
+                    register(LZ4Dictionary.of(parsed, Files.readAllBytes(file)));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Selects the dictionary used to compress new values. Defaults to the dictionary with the highest ID.
+         *
+         * @param id ID of a registered dictionary.
+         * @return {@code this}.
+         */
+        public Builder active(int id) {
+            this.activeId = id;
+            return this;
+        }
+
+        public LZ4DictionaryRegistry build() {
+            LettuceAssert.isTrue(!dictionaries.isEmpty(), "At least one dictionary must be registered");
+            int id = activeId != null ? activeId : Collections.max(dictionaries.keySet());
+            LettuceAssert.isTrue(dictionaries.containsKey(id), () -> "Active dictionary " + id + " is not registered");
+            return new LZ4DictionaryRegistry(new HashMap<>(dictionaries), dictionaries.get(id));
+        }
+    }
+}
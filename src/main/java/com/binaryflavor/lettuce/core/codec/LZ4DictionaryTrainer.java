@@ -0,0 +1,135 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Builds {@link LZ4Dictionary} content from sample values.
+ * <p>
+ * The trainer follows the idea of zstd's COVER algorithm: every 8-byte sequence is scored by the number of samples it
+ * occurs in, and fixed-size segments of the samples are picked greedily by the summed score of the sequences they cover
+ * that were not covered by an earlier pick. Sequences occurring in a single sample never contribute. Segments picked
+ * first end up at the end of the dictionary, closest to the compressed data.
+ */
+public final class LZ4DictionaryTrainer {
+
+    private static final int SEQUENCE_LENGTH = 8;
+
+    private static final int SEGMENT_LENGTH = 64;
+
+    private static final int SEGMENT_STEP = SEGMENT_LENGTH / 4;
+
+    private LZ4DictionaryTrainer() {
+    }
+
+    /**
+     * Trains dictionary content from {@code samples}.
+     *
+     * @param samples sample values as written by the delegate codec, must not be {@code null}. A few thousand
+     *                representative values are usually enough.
+     * @param maxSize maximum dictionary size, between {@code 1} and {@link LZ4Dictionary#MAX_SIZE}.
+     * @return Dictionary content, possibly shorter than {@code maxSize} or empty if the samples share no content.
+     */
+    public static byte[] train(Collection<byte[]> samples, int maxSize) {
+        LettuceAssert.notNull(samples, "Samples must not be null");
+        LettuceAssert.noNullElements(samples, "Samples must not contain null elements");
+        LettuceAssert.isTrue(maxSize > 0 && maxSize <= LZ4Dictionary.MAX_SIZE,
+            "Max size must be between 1 and " + LZ4Dictionary.MAX_SIZE);
+
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for(byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for(int i = 0; i + SEQUENCE_LENGTH <= sample.length; i++) {
+                long sequence = readLong(sample, i);
+                if(seen.add(sequence)) {
+                    frequencies.merge(sequence, 1, Integer::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Segment> candidates = new PriorityQueue<>((a, b) -> Long.compare(b.score, a.score));
+        for(byte[] sample : samples) {
+            for(int start = 0; start + SEQUENCE_LENGTH <= sample.length; start += SEGMENT_STEP) {
+                Segment segment = new Segment(sample, start, Math.min(sample.length, start + SEGMENT_LENGTH));
+                segment.score = segment.score(frequencies);
+                if(segment.score > 0) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        List<Segment> picked = new ArrayList<>();
+        int size = 0;
+        while(size < maxSize && !candidates.isEmpty()) {
+            Segment segment = candidates.poll();
+            long score = segment.score(frequencies);
+            if(score <= 0) {
+                continue;
+            }
+            // scores only decrease, so a segment still ahead of the next candidate after re-scoring is the best one
+            if(!candidates.isEmpty() && score < candidates.peek().score) {
+                segment.score = score;
+                candidates.add(segment);
+                continue;
+            }
+
+            segment.end = Math.min(segment.end, segment.start + maxSize - size);
+            picked.add(segment);
+            size += segment.end - segment.start;
+            for(int i = segment.start; i + SEQUENCE_LENGTH <= segment.end; i++) {
+                frequencies.remove(readLong(segment.sample, i));
+            }
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for(int i = picked.size() - 1; i >= 0; i--) {
+            Segment segment = picked.get(i);
+            dictionary.write(segment.sample, segment.start, segment.end - segment.start);
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static long readLong(byte[] buffer, int offset) {
+        long value = 0;
+        for(int i = 0; i < SEQUENCE_LENGTH; i++) {
+            value = value << 8 | (buffer[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static final class Segment {
+
+        private final byte[] sample;
+        private final int start;
+        private int end;
+        private long score;
+
+        Segment(byte[] sample, int start, int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        long score(Map<Long, Integer> frequencies) {
+            Set<Long> counted = new HashSet<>();
+            long score = 0;
+            for(int i = start; i + SEQUENCE_LENGTH <= end; i++) {
+                long sequence = readLong(sample, i);
+                Integer frequency = frequencies.get(sequence);
+                if(frequency != null && frequency > 1 && counted.add(sequence)) {
+                    score += frequency;
+                }
+            }
+            return score;
+        }
+    }
+}
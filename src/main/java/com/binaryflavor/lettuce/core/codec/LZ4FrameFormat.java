@@ -0,0 +1,416 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Options of the standard <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md">LZ4 frame format</a>
+ * written by a codec in frame mode. Frames are readable by any LZ4 frame implementation, such as the {@code lz4}
+ * command line tool, Python's {@code lz4.frame} and Go's {@code github.com/pierrec/lz4}.
+ * <p>
+ * Frames are written with independent blocks. Frames of other writers are read with independent or linked blocks, with
+ * or without content size and checksums; frames referencing a dictionary ID are rejected.
+ */
+public final class LZ4FrameFormat {
+
+    /**
+     * Magic number starting every LZ4 frame, stored little-endian.
+     */
+    public static final int MAGIC = 0x184D2204;
+
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+
+    private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+
+    private static final int VERSION = 0x40;
+
+    private static final int VERSION_MASK = 0xC0;
+
+    private static final int FLAG_BLOCK_INDEPENDENCE = 0x20;
+
+    private static final int FLAG_BLOCK_CHECKSUM = 0x10;
+
+    private static final int FLAG_CONTENT_SIZE = 0x08;
+
+    private static final int FLAG_CONTENT_CHECKSUM = 0x04;
+
+    private static final int FLAG_DICTIONARY_ID = 0x01;
+
+    private static final int RESERVED_FLAGS = 0x02;
+
+    private static final int UNCOMPRESSED_BLOCK = 0x80000000;
+
+    private static final int LINKED_WINDOW = LZ4Block.MAX_DISTANCE + 1;
+
+    /**
+     * Worst-case ratio of decoded to compressed length of an LZ4 block.
+     */
+    private static final long MAX_EXPANSION = 255;
+
+    private static final XXHash32 XXHASH = XXHashFactory.fastestInstance().hash32();
+
+    private static final LZ4SafeDecompressor DECOMPRESSOR =
+        LZ4CompressionCodecFactory.fastestFactory().safeDecompressor();
+
+    private static final LZ4FrameFormat DEFAULTS = builder().build();
+
+    private final BLOCKSIZE blockSize;
+    private final boolean contentSize;
+    private final boolean contentChecksum;
+    private final boolean blockChecksum;
+
+    private LZ4FrameFormat(BLOCKSIZE blockSize, boolean contentSize, boolean contentChecksum, boolean blockChecksum) {
+        this.blockSize = blockSize;
+        this.contentSize = contentSize;
+        this.contentChecksum = contentChecksum;
+        this.blockChecksum = blockChecksum;
+    }
+
+    /**
+     * @return Frame format with 64 KiB blocks and the content size, without checksums; the defaults of Python's
+     * {@code lz4.frame}.
+     */
+    public static LZ4FrameFormat defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Maximum size of uncompressed data per block.
+     */
+    public BLOCKSIZE blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return {@code true} if frames store the uncompressed content size.
+     */
+    public boolean contentSize() {
+        return contentSize;
+    }
+
+    /**
+     * @return {@code true} if frames end with an xxHash32 checksum of the uncompressed content.
+     */
+    public boolean contentChecksum() {
+        return contentChecksum;
+    }
+
+    /**
+     * @return {@code true} if every block is followed by an xxHash32 checksum of its stored data.
+     */
+    public boolean blockChecksum() {
+        return blockChecksum;
+    }
+
+    /**
+     * @param data encoded value.
+     * @return {@code true} if {@code data} starts with the magic number of an LZ4 frame.
+     */
+    static boolean isFrame(byte[] data) {
+        return data.length >= Integer.BYTES && readIntLE(data, 0) == MAGIC;
+    }
+
+    /**
+     * Writes {@code data} as a single frame with independent blocks compressed by {@code compressor}. Blocks that do not
+     * compress are stored uncompressed.
+     */
+    byte[] encode(byte[] data, LZ4Compressor compressor) {
+        int maxBlockSize = maxBlockSize(blockSize.getIndicator());
+        int blocks = (data.length + maxBlockSize - 1) / maxBlockSize;
+        int blockOverhead = Integer.BYTES + (blockChecksum ? Integer.BYTES : 0);
+        int capacity = 7 + (contentSize ? Long.BYTES : 0) + blocks * blockOverhead
+            + compressor.maxCompressedLength(Math.min(data.length, maxBlockSize)) * blocks + Integer.BYTES
+            + (contentChecksum ? Integer.BYTES : 0);
+
+        byte[] frame = new byte[capacity];
+        ByteBuffer buffer = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        int descriptor = buffer.position();
+        int flags = VERSION | FLAG_BLOCK_INDEPENDENCE;
+        if(blockChecksum) {
+            flags |= FLAG_BLOCK_CHECKSUM;
+        }
+        if(contentSize) {
+            flags |= FLAG_CONTENT_SIZE;
+        }
+        if(contentChecksum) {
+            flags |= FLAG_CONTENT_CHECKSUM;
+        }
+        buffer.put((byte) flags);
+        buffer.put((byte) (blockSize.getIndicator() << 4));
+        if(contentSize) {
+            buffer.putLong(data.length);
+        }
+        buffer.put(headerChecksum(frame, descriptor, buffer.position() - descriptor));
+
+        for(int offset = 0; offset < data.length; offset += maxBlockSize) {
+            int length = Math.min(maxBlockSize, data.length - offset);
+            int blockStart = buffer.position() + Integer.BYTES;
+            int compressedLength = compressor.compress(data, offset, length, frame, blockStart, frame.length - blockStart);
+            int storedLength = compressedLength;
+            if(compressedLength >= length) {
+                System.arraycopy(data, offset, frame, blockStart, length);
+                storedLength = length;
+                buffer.putInt(length | UNCOMPRESSED_BLOCK);
+            } else {
+                buffer.putInt(compressedLength);
+            }
+            buffer.position(blockStart + storedLength);
+            if(blockChecksum) {
+                buffer.putInt(XXHASH.hash(frame, blockStart, storedLength, 0));
+            }
+        }
+
+        buffer.putInt(0);
+        if(contentChecksum) {
+            buffer.putInt(XXHASH.hash(data, 0, data.length, 0));
+        }
+        return Arrays.copyOf(frame, buffer.position());
+    }
+
+    /**
+     * Reads the content of all frames in {@code data}, skipping skippable frames.
+     *
+     * @throws IllegalArgumentException if {@code data} is not a sequence of valid frames.
+     */
+    static byte[] decode(byte[] data) {
+        Output output = new Output(data.length);
+        int position = 0;
+        while(position < data.length) {
+            check(data.length - position >= Integer.BYTES, "Truncated frame at " + position);
+            int magic = readIntLE(data, position);
+            position += Integer.BYTES;
+            if((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+                check(data.length - position >= Integer.BYTES, "Truncated skippable frame at " + position);
+                long skip = readIntLE(data, position) & 0xFFFFFFFFL;
+                check(skip <= data.length - position - Integer.BYTES, "Truncated skippable frame at " + position);
+                position += Integer.BYTES + (int) skip;
+                continue;
+            }
+            check(magic == MAGIC, "Not an LZ4 frame at " + (position - Integer.BYTES));
+            position = decodeFrame(data, position, output);
+        }
+        return output.toByteArray();
+    }
+
+    private static int decodeFrame(byte[] data, int position, Output output) {
+        int descriptor = position;
+        check(data.length - position >= 3, "Truncated frame descriptor at " + position);
+        int flags = data[position++] & 0xFF;
+        int blockDescriptor = data[position++] & 0xFF;
+        check((flags & VERSION_MASK) == VERSION, "Unsupported frame version: " + (flags >>> 6));
+        check((flags & RESERVED_FLAGS) == 0 && (blockDescriptor & 0x8F) == 0,
+            "Reserved frame descriptor bits are set");
+        check((flags & FLAG_DICTIONARY_ID) == 0, "Frames with dictionary ID are not supported");
+        int indicator = blockDescriptor >>> 4;
+        check(indicator >= 4, "Unsupported block size indicator: " + indicator);
+        int maxBlockSize = maxBlockSize(indicator);
+
+        long expectedSize = -1;
+        if((flags & FLAG_CONTENT_SIZE) != 0) {
+            check(data.length - position >= Long.BYTES + 1, "Truncated frame descriptor at " + position);
+            expectedSize = readLongLE(data, position);
+            check(expectedSize >= 0 && expectedSize <= Integer.MAX_VALUE - 8, "Unsupported content size: " + expectedSize);
+            position += Long.BYTES;
+            // don't trust sizes beyond the worst-case expansion for preallocation
+            output.ensureCapacity(output.size + (int) Math.min(expectedSize, MAX_EXPANSION * data.length));
+        }
+        check(headerChecksum(data, descriptor, position - descriptor) == data[position++],
+            "Frame descriptor checksum mismatch");
+
+        boolean linked = (flags & FLAG_BLOCK_INDEPENDENCE) == 0;
+        boolean blockChecksum = (flags & FLAG_BLOCK_CHECKSUM) != 0;
+        int frameStart = output.size;
+        while(true) {
+            check(data.length - position >= Integer.BYTES, "Truncated block at " + position);
+            int header = readIntLE(data, position);
+            position += Integer.BYTES;
+            if(header == 0) {
+                break;
+            }
+            int length = header & ~UNCOMPRESSED_BLOCK;
+            check(length <= maxBlockSize, "Block size " + length + " exceeds maximum " + maxBlockSize);
+            check(data.length - position >= length + (blockChecksum ? Integer.BYTES : 0),
+                "Truncated block at " + position);
+            if(blockChecksum) {
+                check(XXHASH.hash(data, position, length, 0) == readIntLE(data, position + length),
+                    "Block checksum mismatch at " + position);
+            }
+
+            if((header & UNCOMPRESSED_BLOCK) != 0) {
+                check(expectedSize < 0 || output.size - frameStart + length <= expectedSize,
+                    "Content size exceeds expected " + expectedSize);
+                output.ensureCapacity(output.size + length);
+                System.arraycopy(data, position, output.buffer, output.size, length);
+                output.size += length;
+            } else {
+                // size the output by what the block can decode to rather than by the maximum block size
+                int capacity = (int) Math.min(maxBlockSize, MAX_EXPANSION * length);
+                if(expectedSize >= 0) {
+                    capacity = (int) Math.min(capacity, frameStart + expectedSize - output.size);
+                }
+                output.ensureCapacity(output.size + capacity);
+                if(linked) {
+                    int windowStart = Math.max(frameStart, output.size - LINKED_WINDOW);
+                    byte[] window = Arrays.copyOfRange(output.buffer, windowStart, output.size);
+                    output.size += LZ4Block.decompress(data, position, length, output.buffer, output.size, capacity, window);
+                } else {
+                    output.size += DECOMPRESSOR.decompress(data, position, length, output.buffer, output.size, capacity);
+                }
+            }
+            position += length + (blockChecksum ? Integer.BYTES : 0);
+        }
+
+        int contentLength = output.size - frameStart;
+        if(expectedSize >= 0) {
+            check(contentLength == expectedSize,
+                "Content size mismatch: expected " + expectedSize + " but was " + contentLength);
+        }
+        if((flags & FLAG_CONTENT_CHECKSUM) != 0) {
+            check(data.length - position >= Integer.BYTES, "Truncated content checksum at " + position);
+            check(XXHASH.hash(output.buffer, frameStart, contentLength, 0) == readIntLE(data, position),
+                "Content checksum mismatch");
+            position += Integer.BYTES;
+        }
+        return position;
+    }
+
+    private static int maxBlockSize(int indicator) {
+        return 1 << (2 * indicator + 8);
+    }
+
+    private static byte headerChecksum(byte[] data, int offset, int length) {
+        return (byte) (XXHASH.hash(data, offset, length, 0) >>> 8);
+    }
+
+    private static int readIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16
+            | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    private static long readLongLE(byte[] data, int offset) {
+        return (readIntLE(data, offset) & 0xFFFFFFFFL) | (long) readIntLE(data, offset + Integer.BYTES) << 32;
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof LZ4FrameFormat)) {
+            return false;
+        }
+        LZ4FrameFormat that = (LZ4FrameFormat) o;
+        return blockSize == that.blockSize && contentSize == that.contentSize && contentChecksum == that.contentChecksum
+            && blockChecksum == that.blockChecksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(blockSize, contentSize, contentChecksum, blockChecksum);
+    }
+
+    @Override
+    public String toString() {
+        return "LZ4FrameFormat[blockSize=" + blockSize + ", contentSize=" + contentSize + ", contentChecksum="
+            + contentChecksum + ", blockChecksum=" + blockChecksum + "]";
+    }
+
+    /**
+     * Growable output of decoded frames.
+     */
+    private static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void ensureCapacity(int capacity) {
+            if(capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+
+        byte[] toByteArray() {
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Builder for {@link LZ4FrameFormat}.
+     */
+    public static final class Builder {
+
+        private BLOCKSIZE blockSize = BLOCKSIZE.SIZE_64KB;
+        private boolean contentSize = true;
+        private boolean contentChecksum;
+        private boolean blockChecksum;
+
+        private Builder() {
+        }
+
+        /**
+         * @param blockSize maximum size of uncompressed data per block, must not be {@code null}. Defaults to 64 KiB.
+         * @return {@code this} builder.
+         */
+        public Builder blockSize(BLOCKSIZE blockSize) {
+            LettuceAssert.notNull(blockSize, "Block size must not be null");
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * @param contentSize whether frames store the uncompressed content size. Enabled by default.
+         * @return {@code this} builder.
+         */
+        public Builder contentSize(boolean contentSize) {
+            this.contentSize = contentSize;
+            return this;
+        }
+
+        /**
+         * @param contentChecksum whether frames end with a checksum of the uncompressed content. Disabled by default.
+         * @return {@code this} builder.
+         */
+        public Builder contentChecksum(boolean contentChecksum) {
+            this.contentChecksum = contentChecksum;
+            return this;
+        }
+
+        /**
+         * @param blockChecksum whether every block is followed by a checksum. Disabled by default.
+         * @return {@code this} builder.
+         */
+        public Builder blockChecksum(boolean blockChecksum) {
+            this.blockChecksum = blockChecksum;
+            return this;
+        }
+
+        public LZ4FrameFormat build() {
+            return new LZ4FrameFormat(blockSize, contentSize, contentChecksum, blockChecksum);
+        }
+    }
+}
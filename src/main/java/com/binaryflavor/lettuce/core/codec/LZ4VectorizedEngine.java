@@ -0,0 +1,462 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Pure-Java LZ4 block engine that needs neither JNI nor {@code sun.misc.Unsafe}, for JVMs where lz4-java falls back to
+ * its slow safe instance. Compressed output is identical to lz4-java's Java fast compressor, so values are readable by
+ * every lz4-java instance and vice versa.
+ * <p>
+ * Words are read through {@link VarHandle} views and matches are extended with the intrinsified
+ * {@link Arrays#mismatch(byte[], int, int, byte[], int, int)}.
+ *
+ * @see LZ4CompressionCodecFactory#vectorizedInstance(io.lettuce.core.codec.RedisCodec)
+ */
+public final class LZ4VectorizedEngine {
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MIN_MATCH = 4;
+
+    private static final int LAST_LITERALS = 5;
+
+    private static final int MF_LIMIT = 12;
+
+    private static final int COPY_LENGTH = 8;
+
+    private static final int SKIP_STRENGTH = 6;
+
+    private static final int MAX_DISTANCE = 65536;
+
+    private static final int LIMIT_64K = 65547;
+
+    private static final int HASH_LOG = 12;
+
+    private static final int HASH_LOG_64K = 13;
+
+    private static final int RUN_MASK = 15;
+
+    private static final int ML_MASK = 15;
+
+    private static final LZ4Compressor COMPRESSOR = new Compressor();
+
+    private static final LZ4FastDecompressor FAST_DECOMPRESSOR = new FastDecompressor();
+
+    private LZ4VectorizedEngine() {
+    }
+
+    /**
+     * @return Compressor producing the same blocks as {@code LZ4Factory.safeInstance().fastCompressor()}.
+     */
+    public static LZ4Compressor compressor() {
+        return COMPRESSOR;
+    }
+
+    /**
+     * @return Decompressor for LZ4 blocks of known decompressed length.
+     */
+    public static LZ4FastDecompressor fastDecompressor() {
+        return FAST_DECOMPRESSOR;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (int) INT.get(buffer, offset);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_LOG);
+    }
+
+    private static int hash64k(int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_LOG_64K);
+    }
+
+    /**
+     * Counts matching bytes of {@code buffer} at {@code match} and {@code offset}, stopping at {@code limit}. Most matches
+     * are short, so the first word is compared inline before handing longer matches to {@code Arrays.mismatch}.
+     */
+    private static int commonBytes(byte[] buffer, int match, int offset, int limit) {
+        if(offset + Long.BYTES <= limit) {
+            long difference = (long) LONG.get(buffer, match) ^ (long) LONG.get(buffer, offset);
+            if(difference != 0) {
+                return Long.numberOfTrailingZeros(difference) >>> 3;
+            }
+            match += Long.BYTES;
+            offset += Long.BYTES;
+            int mismatch = Arrays.mismatch(buffer, match, match + limit - offset, buffer, offset, limit);
+            return Long.BYTES + (mismatch < 0 ? limit - offset : mismatch);
+        }
+        int count = 0;
+        while(offset < limit && buffer[match++] == buffer[offset++]) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int commonBytesBackward(byte[] buffer, int match, int offset, int matchLimit, int offsetLimit) {
+        int count = 0;
+        while(match > matchLimit && offset > offsetLimit && buffer[--match] == buffer[--offset]) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while(length >= 255) {
+            dest[dOff++] = (byte) 255;
+            length -= 255;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private static int writeLiterals(byte[] src, int anchor, int runLength, byte[] dest, int dOff, int destEnd) {
+        if(dOff + runLength + 8 + (runLength >>> 8) > destEnd) {
+            throw new LZ4Exception("maxDestLen is too small");
+        }
+        if(runLength >= RUN_MASK) {
+            dest[dOff - 1] = (byte) (RUN_MASK << 4);
+            dOff = writeLength(runLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[dOff - 1] = (byte) (runLength << 4);
+        }
+        System.arraycopy(src, anchor, dest, dOff, runLength);
+        return dOff + runLength;
+    }
+
+    private static int writeMatch(int matchLength, int tokenOff, byte[] dest, int dOff, int destEnd) {
+        if(dOff + 6 + (matchLength >>> 8) > destEnd) {
+            throw new LZ4Exception("maxDestLen is too small");
+        }
+        if(matchLength >= ML_MASK) {
+            dest[tokenOff] |= ML_MASK;
+            return writeLength(matchLength - ML_MASK, dest, dOff);
+        }
+        dest[tokenOff] |= (byte) matchLength;
+        return dOff;
+    }
+
+    private static int writeLastLiterals(byte[] src, int anchor, int runLength, byte[] dest, int dOff, int destEnd) {
+        if(dOff + runLength + 1 + (runLength + 255 - RUN_MASK) / 255 > destEnd) {
+            throw new LZ4Exception("maxDestLen is too small");
+        }
+        if(runLength >= RUN_MASK) {
+            dest[dOff++] = (byte) (RUN_MASK << 4);
+            dOff = writeLength(runLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[dOff++] = (byte) (runLength << 4);
+        }
+        System.arraycopy(src, anchor, dest, dOff, runLength);
+        return dOff + runLength;
+    }
+
+    /**
+     * Greedy LZ4 compression of inputs below 64 KiB, using 16-bit positions relative to {@code srcOff}.
+     */
+    private static int compress64k(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destEnd) {
+        int srcEnd = srcOff + srcLen;
+        int srcLimit = srcEnd - LAST_LITERALS;
+        int mfLimit = srcEnd - MF_LIMIT;
+        int sOff = srcOff;
+        int dOff = destOff;
+        int anchor = sOff++;
+
+        if(srcLen >= MF_LIMIT + 1) {
+            short[] table = new short[1 << HASH_LOG_64K];
+            search:
+            while(true) {
+                int forwardOff = sOff;
+                int step = 1;
+                int attempts = 1 << SKIP_STRENGTH;
+                int ref;
+                int sequence;
+                do {
+                    sOff = forwardOff;
+                    forwardOff += step;
+                    step = attempts++ >>> SKIP_STRENGTH;
+                    if(forwardOff > mfLimit) {
+                        break search;
+                    }
+                    sequence = readInt(src, sOff);
+                    int h = hash64k(sequence);
+                    ref = srcOff + (table[h] & 0xFFFF);
+                    table[h] = (short) (sOff - srcOff);
+                } while(readInt(src, ref) != sequence);
+
+                int excess = commonBytesBackward(src, ref, sOff, srcOff, anchor);
+                sOff -= excess;
+                ref -= excess;
+
+                int tokenOff = dOff++;
+                dOff = writeLiterals(src, anchor, sOff - anchor, dest, dOff, destEnd);
+
+                while(true) {
+                    dest[dOff] = (byte) (sOff - ref);
+                    dest[dOff + 1] = (byte) ((sOff - ref) >>> 8);
+                    dOff += 2;
+                    sOff += MIN_MATCH;
+                    ref += MIN_MATCH;
+                    int matchLength = commonBytes(src, ref, sOff, srcLimit);
+                    sOff += matchLength;
+                    dOff = writeMatch(matchLength, tokenOff, dest, dOff, destEnd);
+
+                    if(sOff > mfLimit) {
+                        anchor = sOff;
+                        break search;
+                    }
+
+                    table[hash64k(readInt(src, sOff - 2))] = (short) (sOff - 2 - srcOff);
+                    sequence = readInt(src, sOff);
+                    int h = hash64k(sequence);
+                    ref = srcOff + (table[h] & 0xFFFF);
+                    table[h] = (short) (sOff - srcOff);
+                    if(sequence != readInt(src, ref)) {
+                        break;
+                    }
+                    tokenOff = dOff++;
+                    dest[tokenOff] = 0;
+                }
+                anchor = sOff++;
+            }
+        }
+
+        dOff = writeLastLiterals(src, anchor, srcEnd - anchor, dest, dOff, destEnd);
+        return dOff - destOff;
+    }
+
+    /**
+     * Greedy LZ4 compression of inputs of 64 KiB and more, using absolute positions bounded by the match distance.
+     */
+    private static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destEnd) {
+        if(srcLen < LIMIT_64K) {
+            return compress64k(src, srcOff, srcLen, dest, destOff, destEnd);
+        }
+
+        int srcEnd = srcOff + srcLen;
+        int srcLimit = srcEnd - LAST_LITERALS;
+        int mfLimit = srcEnd - MF_LIMIT;
+        int sOff = srcOff;
+        int dOff = destOff;
+        int anchor = sOff++;
+
+        int[] table = new int[1 << HASH_LOG];
+        Arrays.fill(table, anchor);
+        search:
+        while(true) {
+            int forwardOff = sOff;
+            int step = 1;
+            int attempts = 1 << SKIP_STRENGTH;
+            int ref;
+            int back;
+            int sequence;
+            do {
+                sOff = forwardOff;
+                forwardOff += step;
+                step = attempts++ >>> SKIP_STRENGTH;
+                if(forwardOff > mfLimit) {
+                    break search;
+                }
+                sequence = readInt(src, sOff);
+                int h = hash(sequence);
+                ref = table[h];
+                back = sOff - ref;
+                table[h] = sOff;
+            } while(back >= MAX_DISTANCE || readInt(src, ref) != sequence);
+
+            int excess = commonBytesBackward(src, ref, sOff, srcOff, anchor);
+            sOff -= excess;
+            ref -= excess;
+
+            int tokenOff = dOff++;
+            dOff = writeLiterals(src, anchor, sOff - anchor, dest, dOff, destEnd);
+
+            while(true) {
+                dest[dOff] = (byte) back;
+                dest[dOff + 1] = (byte) (back >>> 8);
+                dOff += 2;
+                sOff += MIN_MATCH;
+                int matchLength = commonBytes(src, ref + MIN_MATCH, sOff, srcLimit);
+                sOff += matchLength;
+                dOff = writeMatch(matchLength, tokenOff, dest, dOff, destEnd);
+
+                if(sOff > mfLimit) {
+                    anchor = sOff;
+                    break search;
+                }
+
+                table[hash(readInt(src, sOff - 2))] = sOff - 2;
+                sequence = readInt(src, sOff);
+                int h = hash(sequence);
+                ref = table[h];
+                table[h] = sOff;
+                back = sOff - ref;
+                if(back >= MAX_DISTANCE || sequence != readInt(src, ref)) {
+                    break;
+                }
+                tokenOff = dOff++;
+                dest[tokenOff] = 0;
+            }
+            anchor = sOff++;
+        }
+
+        dOff = writeLastLiterals(src, anchor, srcEnd - anchor, dest, dOff, destEnd);
+        return dOff - destOff;
+    }
+
+    private static int decompress(byte[] src, int srcOff, byte[] dest, int destOff, int destLen) {
+        if(destLen == 0) {
+            if(src[srcOff] != 0) {
+                throw malformed(srcOff);
+            }
+            return 1;
+        }
+
+        int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        while(true) {
+            int token = src[sOff++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if(literalLength == RUN_MASK) {
+                int b;
+                while((b = src[sOff++] & 0xFF) == 255) {
+                    literalLength += 255;
+                }
+                literalLength += b;
+            }
+            int literalEnd = dOff + literalLength;
+            if(literalEnd > destEnd - COPY_LENGTH || literalLength < 0) {
+                if(literalEnd != destEnd) {
+                    throw malformed(sOff);
+                }
+                System.arraycopy(src, sOff, dest, dOff, literalLength);
+                return sOff + literalLength - srcOff;
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLength);
+            sOff += literalLength;
+            dOff = literalEnd;
+
+            int offset = (src[sOff] & 0xFF) | (src[sOff + 1] & 0xFF) << 8;
+            sOff += 2;
+            int matchOff = dOff - offset;
+            if(offset == 0 || matchOff < destOff) {
+                throw malformed(sOff);
+            }
+
+            int matchLength = token & ML_MASK;
+            if(matchLength == ML_MASK) {
+                int b;
+                while((b = src[sOff++] & 0xFF) == 255) {
+                    matchLength += 255;
+                }
+                matchLength += b;
+            }
+            matchLength += MIN_MATCH;
+            int matchEnd = dOff + matchLength;
+            if(matchEnd > destEnd || matchLength < 0) {
+                throw malformed(sOff);
+            }
+
+            if(offset >= matchLength) {
+                System.arraycopy(dest, matchOff, dest, dOff, matchLength);
+            } else {
+                // overlapping match repeats the last offset bytes, copy in growing non-overlapping runs
+                int copied = offset;
+                System.arraycopy(dest, matchOff, dest, dOff, offset);
+                while(copied < matchLength) {
+                    int run = Math.min(copied, matchLength - copied);
+                    System.arraycopy(dest, dOff, dest, dOff + copied, run);
+                    copied += run;
+                }
+            }
+            dOff = matchEnd;
+        }
+    }
+
+    private static LZ4Exception malformed(int offset) {
+        return new LZ4Exception("Malformed input at " + offset);
+    }
+
+    private static void checkRange(int length, int offset, int count) {
+        if(offset < 0 || count < 0 || offset > length - count) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + count + ") out of bounds");
+        }
+    }
+
+    private static final class Compressor extends LZ4Compressor {
+
+        @Override
+        public int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int maxDestLen) {
+            checkRange(src.length, srcOff, srcLen);
+            checkRange(dest.length, destOff, maxDestLen);
+            return LZ4VectorizedEngine.compress(src, srcOff, srcLen, dest, destOff, destOff + maxDestLen);
+        }
+
+        @Override
+        public int compress(ByteBuffer src, int srcOff, int srcLen, ByteBuffer dest, int destOff, int maxDestLen) {
+            checkRange(src.capacity(), srcOff, srcLen);
+            checkRange(dest.capacity(), destOff, maxDestLen);
+            if(src.hasArray() && dest.hasArray()) {
+                return compress(src.array(), src.arrayOffset() + srcOff, srcLen, dest.array(), dest.arrayOffset() + destOff,
+                    maxDestLen);
+            }
+            byte[] input = new byte[srcLen];
+            src.get(srcOff, input);
+            byte[] output = new byte[maxDestLen];
+            int length = compress(input, 0, srcLen, output, 0, maxDestLen);
+            dest.put(destOff, output, 0, length);
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "LZ4VectorizedEngine.Compressor";
+        }
+    }
+
+    private static final class FastDecompressor extends LZ4FastDecompressor {
+
+        @Override
+        public int decompress(byte[] src, int srcOff, byte[] dest, int destOff, int destLen) {
+            checkRange(src.length, srcOff, 1);
+            checkRange(dest.length, destOff, destLen);
+            try {
+                return LZ4VectorizedEngine.decompress(src, srcOff, dest, destOff, destLen);
+            } catch(IndexOutOfBoundsException e) {
+                throw new LZ4Exception("Malformed input at " + srcOff, e);
+            }
+        }
+
+        @Override
+        public int decompress(ByteBuffer src, int srcOff, ByteBuffer dest, int destOff, int destLen) {
+            checkRange(src.limit(), srcOff, 1);
+            checkRange(dest.capacity(), destOff, destLen);
+            if(src.hasArray() && dest.hasArray()) {
+                return decompress(src.array(), src.arrayOffset() + srcOff, dest.array(), dest.arrayOffset() + destOff,
+                    destLen);
+            }
+            byte[] input = new byte[src.limit() - srcOff];
+            src.get(srcOff, input);
+            byte[] output = new byte[destLen];
+            int read = decompress(input, 0, output, 0, destLen);
+            dest.put(destOff, output);
+            return read;
+        }
+
+        @Override
+        public String toString() {
+            return "LZ4VectorizedEngine.FastDecompressor";
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.lettuce.core.internal.LettuceAssert;
+
+/**
+ * Target element size of a codec keeping values small enough for Redis' compact listpack encoding, together with counters
+ * of the values that fit under it.
+ * <p>
+ * Redis keeps small hashes and sorted sets in listpack encoding only while every element stays within
+ * {@code hash-max-listpack-value} (respectively {@code zset-max-listpack-value}) bytes; a single larger element converts
+ * the whole key to a hashtable or skiplist. A codec using a target stores each value uncompressed behind a one-byte marker
+ * when that fits and compresses it otherwise, choosing the smaller encoding when neither fits. Hash values and sorted set
+ * members are values from the codec's point of view ({@code hset(K, K, V)}, {@code zadd(K, double, V)}) and are encoded
+ * this way. Hash fields are keys and pass through unchanged, so they have to stay within the limit on their own.
+ * <p>
+ * A target collects counters for every codec it is passed to.
+ */
+public final class ListpackTarget {
+
+    /**
+     * Default of Redis' {@code hash-max-listpack-value} and {@code zset-max-listpack-value}.
+     */
+    public static final int DEFAULT_MAX_ELEMENT_SIZE = 64;
+
+    private final int maxElementSize;
+    private final LongAdder fitting = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+
+    private ListpackTarget(int maxElementSize) {
+        this.maxElementSize = maxElementSize;
+    }
+
+    /**
+     * @return Target using {@link #DEFAULT_MAX_ELEMENT_SIZE}.
+     */
+    public static ListpackTarget create() {
+        return of(DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    /**
+     * @param maxElementSize largest encoded value size in bytes that still fits, as configured by
+     *                       {@code hash-max-listpack-value}. Must be positive.
+     * @return Target using {@code maxElementSize}.
+     */
+    public static ListpackTarget of(int maxElementSize) {
+        LettuceAssert.isTrue(maxElementSize > 0, "Max element size must be greater than 0");
+        return new ListpackTarget(maxElementSize);
+    }
+
+    /**
+     * @return Largest encoded value size in bytes that still fits.
+     */
+    public int maxElementSize() {
+        return maxElementSize;
+    }
+
+    /**
+     * @return Number of values encoded within {@link #maxElementSize()} bytes.
+     */
+    public long fitting() {
+        return fitting.sum();
+    }
+
+    /**
+     * @return Number of values whose smallest encoding exceeds {@link #maxElementSize()} bytes.
+     */
+    public long oversized() {
+        return oversized.sum();
+    }
+
+    /**
+     * Resets both counters to zero.
+     */
+    public void reset() {
+        fitting.reset();
+        oversized.reset();
+    }
+
+    boolean fits(int size) {
+        return size <= maxElementSize;
+    }
+
+    void record(int size) {
+        if(fits(size)) {
+            fitting.increment();
+        } else {
+            oversized.increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListpackTarget[maxElementSize=" + maxElementSize + ", fitting=" + fitting() + ", oversized=" + oversized()
+            + "]";
+    }
+}
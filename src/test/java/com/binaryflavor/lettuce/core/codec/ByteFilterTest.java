@@ -0,0 +1,142 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ByteFilter")
+class ByteFilterTest {
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void assertReversible(ByteFilter filter, byte[] data) {
+        byte[] original = data.clone();
+        byte[] filtered = filter.apply(data);
+
+        assertArrayEquals(original, data, "Input must not be modified");
+        assertEquals(original.length, filtered.length);
+        assertArrayEquals(original, filter.reverse(filtered), filter.toString());
+    }
+
+    @Nested
+    @DisplayName("Shuffle")
+    class ShuffleTests {
+
+        @Test
+        @DisplayName("should group bytes of the same significance")
+        void shouldGroupBytesOfTheSameSignificance() {
+            byte[] data = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+            byte[] shuffled = ByteFilter.shuffle(4).apply(data);
+
+            assertArrayEquals(new byte[] {1, 5, 2, 6, 3, 7, 4, 8, 9}, shuffled);
+        }
+
+        @Test
+        @DisplayName("should be reversible for every width and length")
+        void shouldBeReversibleForEveryWidthAndLength() {
+            for(int width = 1; width <= 16; width++) {
+                for(int length = 0; length < 64; length++) {
+                    assertReversible(ByteFilter.shuffle(width), randomBytes(length, width * 100L + length));
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Delta")
+    class DeltaTests {
+
+        @Test
+        @DisplayName("should store differences between elements")
+        void shouldStoreDifferencesBetweenElements() {
+            ByteBuffer values = ByteBuffer.allocate(4 * 4);
+            values.putInt(1000).putInt(1001).putInt(1003).putInt(1000);
+
+            ByteBuffer deltas = ByteBuffer.wrap(ByteFilter.delta(4, ByteOrder.BIG_ENDIAN).apply(values.array()));
+
+            assertEquals(1000, deltas.getInt());
+            assertEquals(1, deltas.getInt());
+            assertEquals(2, deltas.getInt());
+            assertEquals(-3, deltas.getInt());
+        }
+
+        @Test
+        @DisplayName("should honor the declared byte order")
+        void shouldHonorTheDeclaredByteOrder() {
+            ByteBuffer values = ByteBuffer.allocate(2 * 8).order(ByteOrder.LITTLE_ENDIAN);
+            values.putLong(1L << 40).putLong((1L << 40) + 5);
+
+            ByteBuffer deltas = ByteBuffer.wrap(ByteFilter.delta(8, ByteOrder.LITTLE_ENDIAN).apply(values.array()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            assertEquals(1L << 40, deltas.getLong());
+            assertEquals(5, deltas.getLong());
+        }
+
+        @Test
+        @DisplayName("should be reversible for every width, order and length")
+        void shouldBeReversibleForEveryWidthOrderAndLength() {
+            for(int width : new int[] {1, 2, 4, 8}) {
+                for(ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                    for(int length = 0; length < 64; length++) {
+                        byte[] data = randomBytes(length, width * 100L + length);
+                        assertReversible(ByteFilter.delta(width, order), data);
+                        assertReversible(ByteFilter.deltaShuffle(width, order), data);
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("should reject widths other than 1, 2, 4 and 8")
+        void shouldRejectUnsupportedWidths() {
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.delta(3, ByteOrder.BIG_ENDIAN));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.deltaShuffle(16, ByteOrder.BIG_ENDIAN));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.delta(8, null));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.shuffle(0));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.shuffle(256));
+        }
+    }
+
+    @Nested
+    @DisplayName("Serialization")
+    class SerializationTests {
+
+        @Test
+        @DisplayName("should read back written filters")
+        void shouldReadBackWrittenFilters() {
+            ByteFilter[] filters = {
+                ByteFilter.shuffle(8),
+                ByteFilter.delta(4, ByteOrder.LITTLE_ENDIAN),
+                ByteFilter.deltaShuffle(8, ByteOrder.BIG_ENDIAN)
+            };
+
+            for(ByteFilter filter : filters) {
+                ByteBuffer buffer = ByteBuffer.allocate(ByteFilter.SERIALIZED_SIZE);
+                filter.write(buffer);
+                buffer.flip();
+
+                assertEquals(filter, ByteFilter.read(buffer));
+            }
+        }
+
+        @Test
+        @DisplayName("should reject unknown filters")
+        void shouldRejectUnknownFilters() {
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.read(ByteBuffer.wrap(new byte[] {0x40, 8})));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.read(ByteBuffer.wrap(new byte[] {0x02, 0})));
+            assertThrows(IllegalArgumentException.class, () -> ByteFilter.read(ByteBuffer.wrap(new byte[] {0x01, 3})));
+        }
+    }
+}
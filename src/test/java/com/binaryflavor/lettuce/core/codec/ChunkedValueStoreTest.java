@@ -0,0 +1,345 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+@DisplayName("ChunkedValueStore")
+class ChunkedValueStoreTest {
+
+    private static InProcessRedisServer server;
+    private static RedisClient client;
+    private static StatefulRedisConnection<byte[], byte[]> connection;
+
+    private RedisAsyncCommands<byte[], byte[]> commands;
+    private RedisCodec<String, String> codec;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = InProcessRedisServer.start();
+        client = RedisClient.create(server.uri());
+        connection = client.connect(ByteArrayCodec.INSTANCE);
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        connection.close();
+        client.shutdown(0, 2, TimeUnit.SECONDS);
+        server.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        server.flushAll();
+        commands = connection.async();
+        codec = LZ4CompressionCodecFactory.fastest(RedisCodec.of(StringCodec.UTF8, StringCodec.UTF8));
+    }
+
+    private static String randomText(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("Round Trip")
+    class RoundTripTests {
+
+        @Test
+        @DisplayName("should store small values inline")
+        void shouldStoreSmallValuesInline() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+
+            store.set("small", "small value").join();
+
+            assertEquals(1, server.size());
+            assertEquals("small value", store.get("small").join());
+        }
+
+        @Test
+        @DisplayName("should split large values into chunks")
+        void shouldSplitLargeValuesIntoChunks() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec)
+                .chunkSize(4096)
+                .maxInFlightChunks(4)
+                .build();
+            String value = randomText(100_000, 1);
+
+            store.set("large", value).join();
+
+            int encodedLength = codec.encodeValue(value).remaining();
+            int expectedChunks = (encodedLength + 4095) / 4096;
+            assertEquals(1 + expectedChunks, server.size());
+            assertEquals(expectedChunks, server.commandCount("SET") - 1);
+            assertEquals(value, store.get("large").join());
+        }
+
+        @Test
+        @DisplayName("should return null for missing keys")
+        void shouldReturnNullForMissingKeys() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).build();
+
+            assertNull(store.get("missing").join());
+        }
+
+        @Test
+        @DisplayName("should read values written without chunking")
+        void shouldReadValuesWrittenWithoutChunking() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).build();
+            String value = "plain value ".repeat(100);
+            byte[] encoded = new byte[codec.encodeValue(value).remaining()];
+            codec.encodeValue(value).get(encoded);
+
+            server.set(bytes("plain"), encoded);
+
+            assertEquals(value, store.get("plain").join());
+        }
+
+        @Test
+        @DisplayName("should decode values on the decode executor")
+        void shouldDecodeValuesOnTheDecodeExecutor() {
+            ExecutorService executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "chunk-decoder"));
+            try {
+                List<String> threads = new CopyOnWriteArrayList<>();
+                RedisCodec<String, String> recording = new RedisCodec<>() {
+
+                    @Override
+                    public String decodeKey(ByteBuffer bytes) {
+                        return codec.decodeKey(bytes);
+                    }
+
+                    @Override
+                    public String decodeValue(ByteBuffer bytes) {
+                        threads.add(Thread.currentThread().getName());
+                        return codec.decodeValue(bytes);
+                    }
+
+                    @Override
+                    public ByteBuffer encodeKey(String key) {
+                        return codec.encodeKey(key);
+                    }
+
+                    @Override
+                    public ByteBuffer encodeValue(String value) {
+                        return codec.encodeValue(value);
+                    }
+                };
+                ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, recording)
+                    .chunkSize(1024)
+                    .decodeExecutor(executor)
+                    .build();
+                store.set("large", randomText(20_000, 1)).join();
+                store.set("small", "small value").join();
+
+                assertEquals(randomText(20_000, 1), store.get("large").join());
+                assertEquals("small value", store.get("small").join());
+                assertEquals(List.of("chunk-decoder", "chunk-decoder"), threads);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Overwrite and Delete")
+    class OverwriteAndDeleteTests {
+
+        @Test
+        @DisplayName("should delete chunks of replaced values")
+        void shouldDeleteChunksOfReplacedValues() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+
+            store.set("key", randomText(20_000, 1)).join();
+            String replacement = randomText(10_000, 2);
+            store.set("key", replacement).join();
+
+            int encodedLength = codec.encodeValue(replacement).remaining();
+            assertEquals(1 + (encodedLength + 1023) / 1024, server.size());
+            assertEquals(replacement, store.get("key").join());
+
+            store.set("key", "now small").join();
+
+            assertEquals(1, server.size());
+            assertEquals("now small", store.get("key").join());
+        }
+
+        @Test
+        @DisplayName("should delete the manifest and all chunks")
+        void shouldDeleteTheManifestAndAllChunks() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+            store.set("key", randomText(20_000, 1)).join();
+
+            assertTrue(store.delete("key").join());
+            assertEquals(0, server.size());
+            assertFalse(store.delete("key").join());
+        }
+
+        @Test
+        @DisplayName("should delete written chunks and keep the previous value when a chunk write fails")
+        void shouldDeleteWrittenChunksAndKeepThePreviousValueWhenAChunkWriteFails() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024)
+                .maxInFlightChunks(2).build();
+            String previous = randomText(20_000, 1);
+            store.set("key", previous).join();
+            List<byte[]> keys = server.keys();
+
+            server.rejectWrites(key -> new String(key, StandardCharsets.UTF_8).endsWith(":5"));
+            CompletionException exception = assertThrows(CompletionException.class,
+                () -> store.set("key", randomText(20_000, 2)).join());
+
+            assertEquals("ERR write rejected", exception.getCause().getMessage());
+            assertEquals(keys.size(), server.size());
+            assertEquals(previous, store.get("key").join());
+        }
+
+        @Test
+        @DisplayName("should delete with a single GETDEL")
+        void shouldDeleteWithASingleGetdel() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+            store.set("key", randomText(20_000, 1)).join();
+
+            assertTrue(store.delete("key").join());
+            assertEquals(1, server.commandCount("GETDEL"));
+            assertEquals(0, server.commandCount("GET"));
+        }
+
+        @Test
+        @DisplayName("should fail when chunks are missing")
+        void shouldFailWhenChunksAreMissing() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+            store.set("key", randomText(20_000, 1)).join();
+
+            List<byte[]> keys = server.keys();
+            for(byte[] key : keys) {
+                if(new String(key, StandardCharsets.UTF_8).endsWith(":3")) {
+                    server.delete(key);
+                }
+            }
+
+            CompletionException exception = assertThrows(CompletionException.class, () -> store.get("key").join());
+            assertEquals("Chunked value is incomplete", exception.getCause().getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Chunk Keys")
+    class ChunkKeyTests {
+
+        private List<String> chunkKeysOf(ChunkedValueStore<String, String> store, String key) {
+            store.set(key, randomText(5_000, 1)).join();
+            return server.keys().stream()
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .filter(name -> !name.equals(key))
+                .toList();
+        }
+
+        @Test
+        @DisplayName("should co-locate chunks with the key by default")
+        void shouldCoLocateChunksWithTheKeyByDefault() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+
+            List<String> chunkKeys = chunkKeysOf(store, "doc:1");
+
+            assertFalse(chunkKeys.isEmpty());
+            assertTrue(chunkKeys.stream().allMatch(name -> name.startsWith("{doc:1}:chunk:")), chunkKeys.toString());
+        }
+
+        @Test
+        @DisplayName("should reuse an existing hash tag")
+        void shouldReuseAnExistingHashTag() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+
+            List<String> chunkKeys = chunkKeysOf(store, "doc:{42}");
+
+            assertTrue(chunkKeys.stream().allMatch(name -> name.startsWith("doc:{42}:chunk:")), chunkKeys.toString());
+        }
+
+        @Test
+        @DisplayName("should co-locate chunks of keys with a closing brace outside a hash tag")
+        void shouldCoLocateChunksOfKeysWithAClosingBraceOutsideAHashTag() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec).chunkSize(1024).build();
+
+            for(String key : List.of("doc}1", "doc{}1}", "}{doc")) {
+                server.flushAll();
+                List<String> chunkKeys = chunkKeysOf(store, key);
+
+                assertFalse(chunkKeys.isEmpty());
+                assertTrue(chunkKeys.stream().allMatch(name -> SlotHash.getSlot(name) == SlotHash.getSlot(key)),
+                    chunkKeys.toString());
+                assertEquals(randomText(5_000, 1), store.get(key).join());
+            }
+        }
+
+        @Test
+        @DisplayName("should spread chunks across slots when configured")
+        void shouldSpreadChunksAcrossSlotsWhenConfigured() {
+            ChunkedValueStore<String, String> store = ChunkedValueStore.builder(commands, codec)
+                .chunkSize(1024)
+                .spreadAcrossSlots(true)
+                .build();
+
+            List<String> chunkKeys = chunkKeysOf(store, "doc:{42}");
+
+            assertTrue(chunkKeys.stream().allMatch(name -> name.startsWith("{}doc:{42}:chunk:")), chunkKeys.toString());
+            assertEquals(randomText(5_000, 1), store.get("doc:{42}").join());
+        }
+
+        @Test
+        @DisplayName("should detect hash tags")
+        void shouldDetectHashTags() {
+            assertTrue(ChunkedValueStore.hasHashTag(bytes("a{b}c")));
+            assertFalse(ChunkedValueStore.hasHashTag(bytes("a{}c")));
+            assertFalse(ChunkedValueStore.hasHashTag(bytes("a{bc")));
+            assertFalse(ChunkedValueStore.hasHashTag(bytes("abc")));
+            assertFalse(ChunkedValueStore.hasHashTag(bytes("a}bc")));
+            assertFalse(ChunkedValueStore.hasHashTag(bytes("a{}b{c}")));
+            assertTrue(ChunkedValueStore.hasHashTag(bytes("a}b{c}")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Builder")
+    class BuilderTests {
+
+        @Test
+        @DisplayName("should reject invalid settings")
+        void shouldRejectInvalidSettings() {
+            assertThrows(IllegalArgumentException.class, () -> ChunkedValueStore.builder(null, codec));
+            assertThrows(IllegalArgumentException.class, () -> ChunkedValueStore.builder(commands, null));
+            assertThrows(IllegalArgumentException.class, () -> ChunkedValueStore.builder(commands, codec).chunkSize(0));
+            assertThrows(IllegalArgumentException.class, () -> ChunkedValueStore.builder(commands, codec).maxInFlightChunks(0));
+            assertThrows(IllegalArgumentException.class, () -> ChunkedValueStore.builder(commands, codec).decodeExecutor(null));
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.KeyValueStreamingChannel;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.output.ValueOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+
+@DisplayName("DecompressionOffload")
+class DecompressionOffloadTest {
+
+    private static final RedisCodec<String, String> STRING_CODEC = RedisCodec.of(StringCodec.UTF8, StringCodec.UTF8);
+
+    private static InProcessRedisServer server;
+    private static RedisClient client;
+
+    private final Set<String> decodingThreads = ConcurrentHashMap.newKeySet();
+    private ExecutorService executor;
+    private DecompressionOffload<String, String> offload;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = InProcessRedisServer.start();
+        client = RedisClient.create(server.uri());
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        client.shutdown(0, 2, TimeUnit.SECONDS);
+        server.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        server.flushAll();
+        decodingThreads.clear();
+        executor = Executors.newFixedThreadPool(2, task -> new Thread(task, "offload-decoder"));
+        offload = DecompressionOffload.builder(recordingThreads(LZ4CompressionCodecFactory.fastest(STRING_CODEC)), executor)
+            .threshold(1024)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private RedisCodec<String, String> recordingThreads(RedisCodec<String, String> codec) {
+        return new RedisCodec<>() {
+
+            @Override
+            public String decodeKey(ByteBuffer bytes) {
+                return codec.decodeKey(bytes);
+            }
+
+            @Override
+            public String decodeValue(ByteBuffer bytes) {
+                decodingThreads.add(Thread.currentThread().getName());
+                return codec.decodeValue(bytes);
+            }
+
+            @Override
+            public ByteBuffer encodeKey(String key) {
+                return codec.encodeKey(key);
+            }
+
+            @Override
+            public ByteBuffer encodeValue(String value) {
+                return codec.encodeValue(value);
+            }
+        };
+    }
+
+    /**
+     * @return Value as decoded by {@link DecompressionOffload#codec()}, deferred for large documents.
+     */
+    private Object decodedByOffloadCodec(String value) {
+        RedisCodec<?, ?> codec = offload.codec();
+        return codec.decodeValue(LZ4CompressionCodecFactory.fastest(STRING_CODEC).encodeValue(value));
+    }
+
+    private static String document(int size) {
+        StringBuilder document = new StringBuilder();
+        for(int i = 0; document.length() < size; i++) {
+            document.append("{\"id\":").append(i).append(",\"hash\":\"").append(Integer.toHexString(i * 0x9E3779B1))
+                .append("\"},");
+        }
+        return document.toString();
+    }
+
+    @Nested
+    @DisplayName("Async Commands")
+    class AsyncCommandTests {
+
+        @Test
+        @DisplayName("should decode large values on the executor")
+        void shouldDecodeLargeValuesOnTheExecutor() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.set("large", document(100_000)).get(5, TimeUnit.SECONDS);
+
+                assertEquals(document(100_000), commands.get("large").get(5, TimeUnit.SECONDS));
+                assertEquals(Set.of("offload-decoder"), decodingThreads);
+            }
+        }
+
+        @Test
+        @DisplayName("should decode small values on the event loop")
+        void shouldDecodeSmallValuesOnTheEventLoop() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.set("small", "value").get(5, TimeUnit.SECONDS);
+
+                assertEquals("value", commands.get("small").get(5, TimeUnit.SECONDS));
+                assertFalse(decodingThreads.contains("offload-decoder"));
+            }
+        }
+
+        @Test
+        @DisplayName("should resolve values nested in results")
+        void shouldResolveValuesNestedInResults() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.mset(Map.of("large", document(50_000), "small", "value")).get(5, TimeUnit.SECONDS);
+
+                List<KeyValue<String, String>> values = commands.mget("large", "small", "missing").get(5, TimeUnit.SECONDS);
+
+                assertEquals(List.of(KeyValue.just("large", document(50_000)), KeyValue.just("small", "value"),
+                    KeyValue.empty("missing")), values);
+                assertTrue(decodingThreads.contains("offload-decoder"));
+            }
+        }
+
+        @Test
+        @DisplayName("should only hop to the executor for results with large values")
+        void shouldOnlyHopToTheExecutorForResultsWithLargeValues() throws Exception {
+            AtomicInteger hops = new AtomicInteger();
+            DecompressionOffload<String, String> counting = DecompressionOffload
+                .builder(LZ4CompressionCodecFactory.fastest(STRING_CODEC), task -> {
+                    hops.incrementAndGet();
+                    executor.execute(task);
+                })
+                .threshold(1024)
+                .build();
+
+            try(StatefulRedisConnection<String, String> connection = client.connect(counting.codec())) {
+                RedisAsyncCommands<String, String> commands = counting.wrap(connection.async());
+                commands.mset(Map.of("large", document(50_000), "small", "value")).get(5, TimeUnit.SECONDS);
+
+                commands.mget("small", "missing").get(5, TimeUnit.SECONDS);
+                assertEquals(0, hops.get());
+
+                commands.mget("small", "large").get(5, TimeUnit.SECONDS);
+                assertEquals(1, hops.get());
+            }
+        }
+
+        @Test
+        @DisplayName("should fail futures of values failing to decode")
+        void shouldFailFuturesOfValuesFailingToDecode() throws Exception {
+            byte[] corrupted = new byte[4096];
+            corrupted[3] = 100;
+            server.set("corrupted".getBytes(StandardCharsets.UTF_8), corrupted);
+
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisFuture<String> future = offload.wrap(connection.async()).get("corrupted");
+
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertEquals("Failed to decompress value", e.getCause().getMessage());
+                assertTrue(future.await(1, TimeUnit.SECONDS));
+            }
+        }
+
+        @Test
+        @DisplayName("should decode values passed to streaming channels")
+        void shouldDecodeValuesPassedToStreamingChannels() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.set("large", document(50_000)).get(5, TimeUnit.SECONDS);
+                List<String> values = new ArrayList<>();
+
+                commands.mget((key, value) -> values.add(value), "large").get(5, TimeUnit.SECONDS);
+
+                assertEquals(List.of(document(50_000)), values);
+            }
+        }
+
+        @Test
+        @DisplayName("should decode values passed to streaming channels inheriting their interface")
+        void shouldDecodeValuesPassedToStreamingChannelsInheritingTheirInterface() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.set("large", document(50_000)).get(5, TimeUnit.SECONDS);
+                CollectingChannel channel = new CollectingChannel() {
+                };
+
+                commands.mget(channel, "large").get(5, TimeUnit.SECONDS);
+
+                assertEquals(List.of(document(50_000)), channel.values);
+            }
+        }
+    }
+
+    private static class CollectingChannel implements KeyValueStreamingChannel<String, String> {
+
+        final List<String> values = new ArrayList<>();
+
+        @Override
+        public void onKeyValue(String key, String value) {
+            values.add(value);
+        }
+    }
+
+    @Nested
+    @DisplayName("Untyped Results")
+    class UntypedResultTests {
+
+        @Test
+        @DisplayName("should decode values of dispatched commands")
+        void shouldDecodeValuesOfDispatchedCommands() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+                commands.set("large", document(100_000)).get(5, TimeUnit.SECONDS);
+
+                RedisFuture<String> value = commands.dispatch(CommandType.GET, new ValueOutput<>(offload.codec()),
+                    new CommandArgs<>(offload.codec()).addKey("large"));
+
+                assertEquals(document(100_000), value.get(5, TimeUnit.SECONDS));
+                assertEquals(document(100_000), offload.wrap(connection.sync()).dispatch(CommandType.GET,
+                    new ValueOutput<>(offload.codec()), new CommandArgs<>(offload.codec()).addKey("large")));
+                assertEquals(Set.of("offload-decoder", Thread.currentThread().getName()), decodingThreads);
+            }
+        }
+
+        @Test
+        @DisplayName("should resolve values in transaction results")
+        void shouldResolveValuesInTransactionResults() {
+            List<Object> results = List.of("OK", decodedByOffloadCodec(document(100_000)), 1L);
+            assertNotEquals(document(100_000), results.get(1));
+
+            TransactionResult resolved = (TransactionResult) offload.resolve(new TransactionResult() {
+
+                @Override
+                public boolean wasDiscarded() {
+                    return false;
+                }
+
+                @Override
+                public int size() {
+                    return results.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return results.isEmpty();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> T get(int index) {
+                    return (T) results.get(index);
+                }
+
+                @Override
+                public Stream<Object> stream() {
+                    return results.stream();
+                }
+
+                @Override
+                public Iterator<Object> iterator() {
+                    return results.iterator();
+                }
+            });
+
+            assertFalse(resolved.wasDiscarded());
+            assertEquals(List.of("OK", document(100_000), 1L), resolved.stream().toList());
+            assertEquals(document(100_000), resolved.<String> get(1));
+        }
+
+        @Test
+        @DisplayName("should decode messages passed to wrapped pub/sub listeners")
+        void shouldDecodeMessagesPassedToWrappedPubSubListeners() {
+            List<String> messages = new ArrayList<>();
+            RedisPubSubListener<String, String> listener = offload.wrap(new RedisPubSubAdapter<>() {
+
+                @Override
+                public void message(String channel, String message) {
+                    messages.add(channel + "=" + message);
+                }
+
+                @Override
+                public void message(String pattern, String channel, String message) {
+                    messages.add(pattern + ":" + channel + "=" + message);
+                }
+            });
+            @SuppressWarnings("unchecked")
+            RedisPubSubListener<String, Object> received = (RedisPubSubListener<String, Object>) (Object) listener;
+
+            received.message("news", decodedByOffloadCodec(document(100_000)));
+            received.message("n*", "news", "small");
+
+            assertEquals(List.of("news=" + document(100_000), "n*:news=small"), messages);
+        }
+
+        @Test
+        @DisplayName("should reject commands returning values in unsupported types")
+        void shouldRejectCommandsReturningValuesInUnsupportedTypes() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                RedisAsyncCommands<String, String> commands = offload.wrap(connection.async());
+
+                UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                    () -> commands.ftSearch("index", "query"));
+                assertTrue(e.getMessage().startsWith("ftSearch returns values in io.lettuce.core.search.SearchReply"));
+                assertThrows(UnsupportedOperationException.class, () -> commands.dispatch(CommandType.GET,
+                    new ValueOutput<>(offload.codec()) {
+                    }, new CommandArgs<>(offload.codec()).addKey("large")));
+                assertDoesNotThrow(() -> commands.dispatch(CommandType.PING, new StatusOutput<>(offload.codec()))
+                    .get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Reactive and Sync Commands")
+    class ReactiveAndSyncCommandTests {
+
+        @Test
+        @DisplayName("should decode large values of reactive commands on the executor")
+        void shouldDecodeLargeValuesOfReactiveCommandsOnTheExecutor() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                connection.sync().set("large", document(100_000));
+
+                assertEquals(document(100_000), offload.wrap(connection.reactive()).get("large").block());
+                assertEquals(List.of(KeyValue.just("large", document(100_000)), KeyValue.empty("missing")),
+                    offload.wrap(connection.reactive()).mget("large", "missing").collectList().block());
+                assertEquals(Set.of("offload-decoder"), decodingThreads);
+            }
+        }
+
+        @Test
+        @DisplayName("should decode large values of sync commands on the calling thread")
+        void shouldDecodeLargeValuesOfSyncCommandsOnTheCallingThread() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(offload.codec())) {
+                connection.sync().set("large", document(100_000));
+
+                assertEquals(document(100_000), offload.wrap(connection.sync()).get("large"));
+                assertEquals(Set.of(Thread.currentThread().getName()), decodingThreads);
+            }
+        }
+
+        @Test
+        @DisplayName("should reject invalid arguments")
+        void shouldRejectInvalidArguments() {
+            assertThrows(IllegalArgumentException.class, () -> DecompressionOffload.builder(STRING_CODEC, null));
+            assertThrows(IllegalArgumentException.class, () -> DecompressionOffload.builder(null, executor));
+            assertThrows(IllegalArgumentException.class, () -> DecompressionOffload.builder(STRING_CODEC, executor)
+                .threshold(-1));
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import io.lettuce.core.RedisURI;
+
+/**
+ * Minimal in-process stand-in for a Redis server speaking RESP2 over a loopback socket, so that tests can drive real
+ * Lettuce connections without an external Redis. Supports the string and keyspace commands used by this library
+ * ({@code GET}, {@code SET} with {@code NX}/{@code XX}/{@code GET}, {@code GETDEL}, {@code MGET}, {@code MSET}, {@code DEL},
+ * {@code EXISTS}, {@code SCAN}, {@code DBSIZE}, {@code FLUSHALL}) plus the connection handshake. Expiry options are accepted and
+ * ignored. {@code HELLO} is rejected so clients fall back to RESP2.
+ */
+final class InProcessRedisServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ConcurrentSkipListMap<ByteBuffer, byte[]> data = new ConcurrentSkipListMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+    private final Map<String, List<byte[]>> lastCommands = new ConcurrentHashMap<>();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile Predicate<byte[]> rejectedWrites = key -> false;
+
+    private InProcessRedisServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+    }
+
+    static InProcessRedisServer start() throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        InProcessRedisServer server = new InProcessRedisServer(serverSocket);
+        Thread acceptor = new Thread(server::accept, "in-process-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    RedisURI uri() {
+        return RedisURI.create(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+    }
+
+    void flushAll() {
+        data.clear();
+        commandCounts.clear();
+        lastCommands.clear();
+        rejectedWrites = key -> false;
+    }
+
+    /**
+     * Makes {@code SET} fail with an error reply for keys matching {@code keys} until the next {@link #flushAll()}.
+     */
+    void rejectWrites(Predicate<byte[]> keys) {
+        rejectedWrites = keys;
+    }
+
+    int size() {
+        return data.size();
+    }
+
+    byte[] get(byte[] key) {
+        return data.get(ByteBuffer.wrap(key));
+    }
+
+    void set(byte[] key, byte[] value) {
+        data.put(ByteBuffer.wrap(key.clone()), value.clone());
+    }
+
+    void delete(byte[] key) {
+        data.remove(ByteBuffer.wrap(key));
+    }
+
+    List<byte[]> keys() {
+        List<byte[]> keys = new ArrayList<>();
+        for(ByteBuffer key : data.keySet()) {
+            keys.add(toArray(key));
+        }
+        return keys;
+    }
+
+    long commandCount(String command) {
+        AtomicLong count = commandCounts.get(command.toUpperCase());
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return Arguments of the last command named {@code command}, including unsupported ones, or {@code null}.
+     */
+    List<byte[]> lastCommand(String command) {
+        return lastCommands.get(command.toUpperCase());
+    }
+
+    long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    long bytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for(Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while(!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "in-process-redis-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch(IOException e) {
+                // server closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try(Socket s = socket;
+            InputStream in = new BufferedInputStream(s.getInputStream(), 64 * 1024);
+            OutputStream out = new BufferedOutputStream(s.getOutputStream(), 64 * 1024)) {
+            Reply reply = new Reply(out);
+            while(true) {
+                List<byte[]> command = readCommand(in);
+                if(command == null) {
+                    return;
+                }
+                String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase();
+                commandCounts.computeIfAbsent(name, ignored -> new AtomicLong()).incrementAndGet();
+                lastCommands.put(name, command);
+                if(!execute(name, command, reply)) {
+                    out.flush();
+                    return;
+                }
+                // flush once the pipelined commands received so far are answered
+                if(in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch(IOException e) {
+            // connection closed
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private boolean execute(String name, List<byte[]> command, Reply reply) throws IOException {
+        switch(name) {
+            case "PING":
+                reply.simple("PONG");
+                return true;
+            case "CLIENT":
+            case "SELECT":
+            case "AUTH":
+                reply.simple("OK");
+                return true;
+            case "QUIT":
+                reply.simple("OK");
+                return false;
+            case "GET":
+                reply.bulk(data.get(ByteBuffer.wrap(command.get(1))));
+                return true;
+            case "SET":
+                set(command, reply);
+                return true;
+            case "GETDEL":
+                reply.bulk(data.remove(ByteBuffer.wrap(command.get(1))));
+                return true;
+            case "MGET":
+                reply.arrayHeader(command.size() - 1);
+                for(int i = 1; i < command.size(); i++) {
+                    reply.bulk(data.get(ByteBuffer.wrap(command.get(i))));
+                }
+                return true;
+            case "MSET":
+                for(int i = 1; i + 1 < command.size(); i += 2) {
+                    data.put(ByteBuffer.wrap(command.get(i)), command.get(i + 1));
+                }
+                reply.simple("OK");
+                return true;
+            case "DEL":
+            case "UNLINK": {
+                long removed = 0;
+                for(int i = 1; i < command.size(); i++) {
+                    if(data.remove(ByteBuffer.wrap(command.get(i))) != null) {
+                        removed++;
+                    }
+                }
+                reply.integer(removed);
+                return true;
+            }
+            case "EXISTS": {
+                long exists = 0;
+                for(int i = 1; i < command.size(); i++) {
+                    if(data.containsKey(ByteBuffer.wrap(command.get(i)))) {
+                        exists++;
+                    }
+                }
+                reply.integer(exists);
+                return true;
+            }
+            case "SCAN":
+                scan(command, reply);
+                return true;
+            case "DBSIZE":
+                reply.integer(data.size());
+                return true;
+            case "FLUSHALL":
+            case "FLUSHDB":
+                data.clear();
+                reply.simple("OK");
+                return true;
+            default:
+                reply.error("ERR unknown command '" + name + "'");
+                return true;
+        }
+    }
+
+    private void set(List<byte[]> command, Reply reply) throws IOException {
+        if(rejectedWrites.test(command.get(1))) {
+            reply.error("ERR write rejected");
+            return;
+        }
+        ByteBuffer key = ByteBuffer.wrap(command.get(1));
+        byte[] value = command.get(2);
+        boolean nx = false;
+        boolean xx = false;
+        boolean get = false;
+        for(int i = 3; i < command.size(); i++) {
+            String option = new String(command.get(i), StandardCharsets.US_ASCII).toUpperCase();
+            switch(option) {
+                case "NX":
+                    nx = true;
+                    break;
+                case "XX":
+                    xx = true;
+                    break;
+                case "GET":
+                    get = true;
+                    break;
+                case "EX":
+                case "PX":
+                case "EXAT":
+                case "PXAT":
+                    i++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        byte[] previous;
+        boolean written;
+        if(nx) {
+            previous = data.putIfAbsent(key, value);
+            written = previous == null;
+        } else if(xx) {
+            previous = data.replace(key, value);
+            written = previous != null;
+        } else {
+            previous = data.put(key, value);
+            written = true;
+        }
+
+        if(get) {
+            reply.bulk(previous);
+        } else if(written) {
+            reply.simple("OK");
+        } else {
+            reply.bulk(null);
+        }
+    }
+
+    private void scan(List<byte[]> command, Reply reply) throws IOException {
+        long cursor = Long.parseLong(new String(command.get(1), StandardCharsets.US_ASCII));
+        byte[] match = null;
+        long count = 10;
+        for(int i = 2; i + 1 < command.size(); i += 2) {
+            String option = new String(command.get(i), StandardCharsets.US_ASCII).toUpperCase();
+            if(option.equals("MATCH")) {
+                match = command.get(i + 1);
+            } else if(option.equals("COUNT")) {
+                count = Long.parseLong(new String(command.get(i + 1), StandardCharsets.US_ASCII));
+            }
+        }
+
+        List<ByteBuffer> keys = new ArrayList<>(data.keySet());
+        int from = (int) Math.min(cursor, keys.size());
+        int to = (int) Math.min(keys.size(), from + count);
+        List<byte[]> matching = new ArrayList<>();
+        for(ByteBuffer key : keys.subList(from, to)) {
+            byte[] bytes = toArray(key);
+            if(match == null || globMatches(match, 0, bytes, 0)) {
+                matching.add(bytes);
+            }
+        }
+
+        reply.arrayHeader(2);
+        reply.bulk(Integer.toString(to == keys.size() ? 0 : to).getBytes(StandardCharsets.US_ASCII));
+        reply.arrayHeader(matching.size());
+        for(byte[] key : matching) {
+            reply.bulk(key);
+        }
+    }
+
+    static boolean globMatches(byte[] pattern, int p, byte[] text, int t) {
+        while(p < pattern.length) {
+            byte c = pattern[p];
+            if(c == '*') {
+                for(int i = t; i <= text.length; i++) {
+                    if(globMatches(pattern, p + 1, text, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if(t >= text.length) {
+                return false;
+            }
+            if(c == '\\' && p + 1 < pattern.length) {
+                p++;
+                if(pattern[p] != text[t]) {
+                    return false;
+                }
+            } else if(c != '?' && c != text[t]) {
+                return false;
+            }
+            p++;
+            t++;
+        }
+        return t == text.length;
+    }
+
+    private List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if(type == -1) {
+            return null;
+        }
+        if(type != '*') {
+            throw new IOException("Inline commands are not supported");
+        }
+        int size = (int) readNumber(in);
+        List<byte[]> command = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            if(in.read() != '$') {
+                throw new IOException("Expected bulk string");
+            }
+            int length = (int) readNumber(in);
+            byte[] argument = in.readNBytes(length);
+            if(argument.length != length || in.read() != '\r' || in.read() != '\n') {
+                throw new EOFException();
+            }
+            command.add(argument);
+            bytesReceived.addAndGet(length);
+        }
+        return command;
+    }
+
+    private static long readNumber(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int c;
+        while((c = in.read()) != '\r') {
+            if(c == -1) {
+                throw new EOFException();
+            }
+            if(c == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (c - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private final class Reply {
+
+        private final OutputStream out;
+
+        Reply(OutputStream out) {
+            this.out = out;
+        }
+
+        void simple(String message) throws IOException {
+            line('+', message);
+        }
+
+        void error(String message) throws IOException {
+            line('-', message);
+        }
+
+        void integer(long value) throws IOException {
+            line(':', Long.toString(value));
+        }
+
+        void arrayHeader(int size) throws IOException {
+            line('*', Integer.toString(size));
+        }
+
+        void bulk(byte[] value) throws IOException {
+            if(value == null) {
+                line('$', "-1");
+                return;
+            }
+            line('$', Integer.toString(value.length));
+            out.write(value);
+            out.write('\r');
+            out.write('\n');
+            bytesSent.addAndGet(value.length);
+        }
+
+        private void line(char type, String content) throws IOException {
+            out.write(type);
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+            out.write('\r');
+            out.write('\n');
+        }
+    }
+}
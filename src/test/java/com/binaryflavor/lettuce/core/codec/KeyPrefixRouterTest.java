@@ -0,0 +1,241 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+@DisplayName("KeyPrefixRouter")
+class KeyPrefixRouterTest {
+
+    private static final RedisCodec<String, String> STRING_CODEC = RedisCodec.of(StringCodec.UTF8, StringCodec.UTF8);
+
+    private static InProcessRedisServer server;
+    private static RedisClient client;
+
+    private RedisCodec<String, String> fast;
+    private RedisCodec<String, String> uncompressed;
+    private RedisCodec<String, String> high;
+    private KeyPrefixRouter<String, String> router;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = InProcessRedisServer.start();
+        client = RedisClient.create(server.uri());
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        client.shutdown(0, 2, TimeUnit.SECONDS);
+        server.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        server.flushAll();
+        fast = LZ4CompressionCodecFactory.fastest(STRING_CODEC);
+        uncompressed = LZ4CompressionCodecFactory.uncompressed(STRING_CODEC);
+        high = LZ4CompressionCodecFactory.highCompression(STRING_CODEC, LZ4CompressionCodecFactory.MAX_COMPRESSION_LEVEL);
+        router = KeyPrefixRouter.builder(fast)
+            .route("session:", uncompressed)
+            .route("report:", high)
+            .build();
+    }
+
+    private static String report() {
+        StringBuilder report = new StringBuilder();
+        for(int i = 0; i < 400; i++) {
+            report.append("row ").append(i % 37).append(", total ").append(i * 7 % 101).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static byte[] stored(String key) {
+        return server.get(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encoded(RedisCodec<String, String> codec, String value) {
+        ByteBuffer buffer = codec.encodeValue(value);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Nested
+    @DisplayName("Routing")
+    class RoutingTests {
+
+        @Test
+        @DisplayName("should select the codec of the longest matching prefix")
+        void shouldSelectTheCodecOfTheLongestMatchingPrefix() {
+            KeyPrefixRouter<String, String> nested = KeyPrefixRouter.builder(fast)
+                .route("report:", high)
+                .route("report:daily:", uncompressed)
+                .build();
+
+            assertSame(high, nested.codecFor("report:2024"));
+            assertSame(uncompressed, nested.codecFor("report:daily:2024-01-01"));
+            assertSame(fast, nested.codecFor("feed:1"));
+            assertSame(fast, nested.codecFor("rep"));
+        }
+
+        @Test
+        @DisplayName("should reject empty and duplicate prefixes")
+        void shouldRejectEmptyAndDuplicatePrefixes() {
+            assertThrows(IllegalArgumentException.class, () -> KeyPrefixRouter.builder(fast).route("", high));
+            assertThrows(IllegalArgumentException.class, () -> KeyPrefixRouter.builder(fast).route("a:", null));
+            assertThrows(IllegalArgumentException.class, () ->
+                KeyPrefixRouter.builder(fast).route("a:", high).route("a:", uncompressed));
+        }
+
+        @Test
+        @DisplayName("should reject routes whose values the default codec can't decode")
+        void shouldRejectRoutesWhoseValuesTheDefaultCodecCantDecode() {
+            LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder()
+                .register(LZ4Dictionary.of(1, report().getBytes(StandardCharsets.UTF_8)))
+                .build();
+            LZ4DictionaryRegistry other = LZ4DictionaryRegistry.builder()
+                .register(LZ4Dictionary.of(1, "other".getBytes(StandardCharsets.UTF_8)))
+                .build();
+            RedisCodec<String, String> dictionary = LZ4CompressionCodecFactory.dictionary(STRING_CODEC, dictionaries);
+            RedisCodec<String, String> frame = LZ4CompressionCodecFactory.frame(STRING_CODEC);
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                KeyPrefixRouter.builder(fast).route("report:", dictionary).build());
+            assertEquals("Route report: compresses with dictionary 1, which the default codec doesn't know", e.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> KeyPrefixRouter.builder(
+                LZ4CompressionCodecFactory.dictionary(STRING_CODEC, other)).route("report:", dictionary).build());
+            assertThrows(IllegalArgumentException.class, () -> KeyPrefixRouter.builder(fast).route("feed:", frame).build());
+            assertThrows(IllegalArgumentException.class, () -> KeyPrefixRouter.builder(STRING_CODEC)
+                .route("report:", dictionary).build());
+        }
+
+        @Test
+        @DisplayName("should reject plain codecs as routes")
+        void shouldRejectPlainCodecsAsRoutes() {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                KeyPrefixRouter.builder(fast).route("session:", STRING_CODEC).build());
+            assertTrue(e.getMessage().startsWith("Route session: must use a codec of LZ4CompressionCodecFactory"),
+                e.getMessage());
+        }
+
+        @Test
+        @DisplayName("should reject compressed routes behind a plain default codec")
+        void shouldRejectCompressedRoutesBehindAPlainDefaultCodec() {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                KeyPrefixRouter.builder(STRING_CODEC).route("feed:", fast).build());
+            assertEquals("Route feed: needs a default codec of LZ4CompressionCodecFactory to decode its values",
+                e.getMessage());
+            assertSame(STRING_CODEC, KeyPrefixRouter.builder(STRING_CODEC).route("feed:", STRING_CODEC).build()
+                .codecFor("feed:1"));
+        }
+
+        @Test
+        @DisplayName("should accept dictionary routes sharing the dictionaries of the default codec")
+        void shouldAcceptDictionaryRoutesSharingTheDictionariesOfTheDefaultCodec() {
+            LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder()
+                .register(LZ4Dictionary.of(1, report().getBytes(StandardCharsets.UTF_8)))
+                .build();
+            RedisCodec<String, String> shared = LZ4CompressionCodecFactory.dictionary(STRING_CODEC, dictionaries);
+            KeyPrefixRouter<String, String> routed = KeyPrefixRouter.builder(shared)
+                .route("session:", uncompressed)
+                .route("report:", LZ4CompressionCodecFactory.dictionary(STRING_CODEC, dictionaries))
+                .build();
+
+            try(StatefulRedisConnection<String, String> connection = client.connect(routed.codec())) {
+                RedisCommands<String, String> commands = routed.wrap(connection.sync());
+                commands.set("report:1", report());
+                commands.set("session:1", "token");
+
+                assertEquals(report(), commands.get("report:1"));
+                assertEquals("token", commands.get("session:1"));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Wrapped Commands")
+    class WrappedCommandTests {
+
+        @Test
+        @DisplayName("should encode values with the codec of their key")
+        void shouldEncodeValuesWithTheCodecOfTheirKey() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(router.codec())) {
+                RedisCommands<String, String> commands = router.wrap(connection.sync());
+
+                commands.set("session:1", "token-1");
+                commands.set("feed:1", report());
+                commands.set("report:1", report());
+
+                assertArrayEquals(encoded(uncompressed, "token-1"), stored("session:1"));
+                assertArrayEquals(encoded(fast, report()), stored("feed:1"));
+                assertArrayEquals(encoded(high, report()), stored("report:1"));
+                assertTrue(stored("report:1").length < stored("feed:1").length);
+
+                assertEquals("token-1", commands.get("session:1"));
+                assertEquals(report(), commands.get("report:1"));
+            }
+        }
+
+        @Test
+        @DisplayName("should route multi-key values by their own key")
+        void shouldRouteMultiKeyValuesByTheirOwnKey() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(router.codec())) {
+                RedisCommands<String, String> commands = router.wrap(connection.sync());
+                Map<String, String> values = new LinkedHashMap<>();
+                values.put("session:2", "token-2");
+                values.put("report:2", report());
+
+                commands.mset(values);
+
+                assertArrayEquals(encoded(uncompressed, "token-2"), stored("session:2"));
+                assertArrayEquals(encoded(high, report()), stored("report:2"));
+                assertEquals(List.of(KeyValue.just("session:2", "token-2"), KeyValue.just("report:2", report())),
+                    commands.mget("session:2", "report:2"));
+            }
+        }
+
+        @Test
+        @DisplayName("should route values of async and reactive commands")
+        void shouldRouteValuesOfAsyncAndReactiveCommands() throws Exception {
+            try(StatefulRedisConnection<String, String> connection = client.connect(router.codec())) {
+                router.wrap(connection.async()).set("session:3", "token-3").get(5, TimeUnit.SECONDS);
+                router.wrap(connection.reactive()).set("report:3", report()).block();
+
+                assertArrayEquals(encoded(uncompressed, "token-3"), stored("session:3"));
+                assertArrayEquals(encoded(high, report()), stored("report:3"));
+                assertEquals(report(), router.wrap(connection.reactive()).get("report:3").block());
+            }
+        }
+
+        @Test
+        @DisplayName("should use the default codec for unwrapped commands")
+        void shouldUseTheDefaultCodecForUnwrappedCommands() {
+            try(StatefulRedisConnection<String, String> connection = client.connect(router.codec())) {
+                connection.sync().set("session:4", report());
+
+                assertArrayEquals(encoded(fast, report()), stored("session:4"));
+                assertEquals(report(), router.wrap(connection.sync()).get("session:4"));
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+@DisplayName("KeyspaceCompressionAnalyzer")
+class KeyspaceCompressionAnalyzerTest {
+
+    private InMemoryKeyspace keyspace;
+
+    @BeforeEach
+    void setUp() {
+        keyspace = new InMemoryKeyspace();
+        Random random = new Random(12345);
+        for(int i = 0; i < 200; i++) {
+            keyspace.set("feed:" + i, ("{\"user\":\"user-" + i + "\",\"items\":[1,2,3,4,5,6,7,8,9]}").repeat(20));
+            byte[] noise = new byte[512];
+            random.nextBytes(noise);
+            keyspace.set("blob:" + i, noise);
+        }
+        keyspace.setNonString("feed:hash");
+    }
+
+    @Nested
+    @DisplayName("Sampling")
+    class SamplingTests {
+
+        @Test
+        @DisplayName("should scan only keys of the configured prefixes")
+        void shouldScanOnlyKeysOfTheConfiguredPrefixes() throws InterruptedException {
+            KeyspaceCompressionReport report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("feed:", "blob:")
+                .sampleRate(1)
+                .scanCount(16)
+                .seed(1)
+                .build()
+                .analyze();
+
+            assertEquals(2, report.prefixes().size());
+            assertEquals(201, report.prefix("feed:").scannedKeys());
+            assertEquals(200, report.prefix("feed:").sizes().count());
+            assertEquals(200, report.prefix("blob:").scannedKeys());
+            assertEquals(200, report.prefix("blob:").sizes().count());
+            assertNull(report.prefix("session:"));
+        }
+
+        @Test
+        @DisplayName("should analyze the whole keyspace when no prefix is configured")
+        void shouldAnalyzeTheWholeKeyspaceWhenNoPrefixIsConfigured() throws InterruptedException {
+            KeyspaceCompressionReport report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .sampleRate(1)
+                .seed(1)
+                .build()
+                .analyze();
+
+            assertEquals(401, report.prefix("").scannedKeys());
+            assertEquals(400, report.prefix("").sizes().count());
+        }
+
+        @Test
+        @DisplayName("should stop sampling a prefix at the sample limit")
+        void shouldStopSamplingAPrefixAtTheSampleLimit() throws InterruptedException {
+            KeyspaceCompressionReport report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("blob:")
+                .sampleRate(1)
+                .maxSamplesPerPrefix(50)
+                .scanCount(10)
+                .seed(1)
+                .build()
+                .analyze();
+
+            assertEquals(50, report.prefix("blob:").sizes().count());
+            assertEquals(50, report.prefix("blob:").scannedKeys());
+        }
+
+        @Test
+        @DisplayName("should sample approximately the configured rate")
+        void shouldSampleApproximatelyTheConfiguredRate() throws InterruptedException {
+            KeyspaceCompressionReport report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("blob:")
+                .sampleRate(0.25)
+                .seed(7)
+                .build()
+                .analyze();
+
+            long sampled = report.prefix("blob:").sizes().count();
+            assertTrue(sampled > 20 && sampled < 80, "Unexpected sample count: " + sampled);
+        }
+
+        @Test
+        @DisplayName("should treat glob characters in prefixes literally")
+        void shouldTreatGlobCharactersInPrefixesLiterally() {
+            assertEquals("a\\*b\\?\\[c\\]\\\\", KeyspaceCompressionAnalyzer.escapeGlob("a*b?[c]\\"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Report")
+    class ReportTests {
+
+        private KeyspaceCompressionReport report;
+
+        @BeforeEach
+        void setUp() throws InterruptedException {
+            report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("feed:", "blob:")
+                .sampleRate(1)
+                .parallelism(4)
+                .maxPendingBatches(2)
+                .scanCount(8)
+                .seed(1)
+                .build()
+                .analyze();
+        }
+
+        @Test
+        @DisplayName("should report every default candidate")
+        void shouldReportEveryDefaultCandidate() {
+            List<KeyspaceCompressionAnalyzer.Candidate> candidates = KeyspaceCompressionAnalyzer.defaultCandidates();
+            KeyspaceCompressionReport.PrefixReport feed = report.prefix("feed:");
+
+            assertEquals(candidates.size(), feed.candidates().size());
+            assertNotNull(feed.candidate("fastest"));
+            assertNotNull(feed.candidate("safest"));
+            assertNotNull(feed.candidate("hc-9"));
+            assertNotNull(feed.candidate("vectorized"));
+        }
+
+        @Test
+        @DisplayName("should report high ratios for repetitive values")
+        void shouldReportHighRatiosForRepetitiveValues() {
+            KeyspaceCompressionReport.PrefixReport feed = report.prefix("feed:");
+
+            for(KeyspaceCompressionReport.CandidateReport candidate : feed.candidates()) {
+                assertTrue(candidate.ratio() > 5, candidate.name() + " ratio: " + candidate.ratio());
+                assertEquals(0, candidate.incompressibleValues());
+                assertEquals(feed.sizes().totalBytes(), candidate.originalBytes());
+                assertTrue(candidate.compressNanosPerMegabyte() > 0);
+                assertTrue(candidate.decompressNanosPerMegabyte() > 0);
+            }
+        }
+
+        @Test
+        @DisplayName("should report random values as incompressible")
+        void shouldReportRandomValuesAsIncompressible() {
+            KeyspaceCompressionReport.CandidateReport fastest = report.prefix("blob:").candidate("fastest");
+
+            assertTrue(fastest.ratio() < 1);
+            assertEquals(200, fastest.incompressibleValues());
+        }
+
+        @Test
+        @DisplayName("should report the size distribution")
+        void shouldReportTheSizeDistribution() {
+            KeyspaceCompressionReport.SizeDistribution sizes = report.prefix("blob:").sizes();
+
+            assertEquals(512, sizes.min());
+            assertEquals(512, sizes.max());
+            assertEquals(512, sizes.mean());
+            assertEquals(512, sizes.percentile(0.99));
+            assertEquals(Map.of(1023L, 200L), sizes.histogram());
+            assertEquals(200 * 512, sizes.totalBytes());
+        }
+
+        @Test
+        @DisplayName("should render a readable summary")
+        void shouldRenderAReadableSummary() {
+            String summary = report.toString();
+
+            assertTrue(summary.contains("prefix 'feed:'"));
+            assertTrue(summary.contains("hc-17"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Custom Candidates")
+    class CustomCandidateTests {
+
+        @Test
+        @DisplayName("should measure only the configured candidates")
+        void shouldMeasureOnlyTheConfiguredCandidates() throws InterruptedException {
+            KeyspaceCompressionReport report = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("feed:")
+                .sampleRate(1)
+                .candidate(KeyspaceCompressionAnalyzer.Candidate.of("raw", ByteArrayCodec.INSTANCE))
+                .seed(1)
+                .build()
+                .analyze();
+
+            KeyspaceCompressionReport.PrefixReport feed = report.prefix("feed:");
+            assertEquals(1, feed.candidates().size());
+            assertEquals(1.0, feed.candidate("raw").ratio());
+        }
+
+        @Test
+        @DisplayName("should propagate candidate failures")
+        void shouldPropagateCandidateFailures() {
+            KeyspaceCompressionAnalyzer analyzer = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("feed:")
+                .sampleRate(1)
+                .candidate(KeyspaceCompressionAnalyzer.Candidate.of("broken", new ByteArrayCodec() {
+                    @Override
+                    public java.nio.ByteBuffer encodeValue(byte[] value) {
+                        throw new IllegalStateException("broken");
+                    }
+                }))
+                .build();
+
+            RuntimeException exception = assertThrows(RuntimeException.class, analyzer::analyze);
+            assertEquals("Failed to analyze keyspace", exception.getMessage());
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+        }
+
+        @Test
+        @DisplayName("should stop scanning further prefixes after a failure")
+        void shouldStopScanningFurtherPrefixesAfterAFailure() {
+            // one pending batch: the second feed batch waits until the failing first one finished
+            KeyspaceCompressionAnalyzer analyzer = KeyspaceCompressionAnalyzer.builder(keyspace)
+                .prefixes("feed:", "blob:")
+                .sampleRate(1)
+                .scanCount(100)
+                .maxPendingBatches(1)
+                .candidate(KeyspaceCompressionAnalyzer.Candidate.of("broken", new ByteArrayCodec() {
+                    @Override
+                    public java.nio.ByteBuffer encodeValue(byte[] value) {
+                        throw new IllegalStateException("broken");
+                    }
+                }))
+                .build();
+
+            assertThrows(RuntimeException.class, analyzer::analyze);
+            assertFalse(keyspace.scannedMatches.contains("blob:*"), keyspace.scannedMatches.toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Builder")
+    class BuilderTests {
+
+        @Test
+        @DisplayName("should reject invalid settings")
+        void shouldRejectInvalidSettings() {
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceCompressionAnalyzer.builder(null));
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceCompressionAnalyzer.builder(keyspace).sampleRate(0));
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceCompressionAnalyzer.builder(keyspace).sampleRate(1.5));
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceCompressionAnalyzer.builder(keyspace).parallelism(0));
+            assertThrows(IllegalArgumentException.class, () -> KeyspaceCompressionAnalyzer.builder(keyspace).prefixes("a", null));
+        }
+    }
+
+    /**
+     * In-process stand-in for a Redis keyspace implementing {@code SCAN} with prefix patterns and {@code MGET}.
+     */
+    static class InMemoryKeyspace implements KeyspaceSource {
+
+        private final TreeMap<String, byte[]> strings = new TreeMap<>();
+        private final Set<String> nonStrings = ConcurrentHashMap.newKeySet();
+        final List<String> scannedMatches = new ArrayList<>();
+
+        void set(String key, String value) {
+            set(key, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        synchronized void set(String key, byte[] value) {
+            strings.put(key, value);
+        }
+
+        synchronized void setNonString(String key) {
+            nonStrings.add(key);
+        }
+
+        @Override
+        public synchronized KeyScanCursor<byte[]> scan(ScanCursor cursor, String match, long count) {
+            scannedMatches.add(match);
+            String prefix = match.substring(0, match.length() - 1).replaceAll("\\\\(.)", "$1");
+            List<String> keys = new ArrayList<>(strings.keySet());
+            keys.addAll(nonStrings);
+            keys.sort(null);
+
+            int position = cursor.getCursor().equals("0") ? 0 : Integer.parseInt(cursor.getCursor());
+            int end = (int) Math.min(keys.size(), position + count);
+
+            KeyScanCursor<byte[]> result = new KeyScanCursor<>();
+            for(String key : keys.subList(position, end)) {
+                if(key.startsWith(prefix)) {
+                    result.getKeys().add(key.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            result.setCursor(end == keys.size() ? "0" : Integer.toString(end));
+            result.setFinished(end == keys.size());
+            return result;
+        }
+
+        @Override
+        public synchronized List<KeyValue<byte[], byte[]>> mget(List<byte[]> keys) {
+            List<KeyValue<byte[], byte[]>> values = new ArrayList<>(keys.size());
+            for(byte[] key : keys) {
+                values.add(KeyValue.fromNullable(key, strings.get(new String(key, StandardCharsets.UTF_8))));
+            }
+            return values;
+        }
+    }
+}
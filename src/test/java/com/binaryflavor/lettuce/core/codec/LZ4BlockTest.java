@@ -0,0 +1,133 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import net.jpountz.lz4.LZ4Factory;
+
+@DisplayName("LZ4Block")
+class LZ4BlockTest {
+
+    private static final byte[] NO_DICTIONARY = new byte[0];
+
+    private static byte[][] inputs() {
+        Random random = new Random(7);
+        byte[] randomBytes = new byte[5000];
+        random.nextBytes(randomBytes);
+        byte[] mixed = new byte[70_000];
+        for(int i = 0; i < mixed.length; i++) {
+            mixed[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : i % 97);
+        }
+        return new byte[][] {
+            new byte[0],
+            {1},
+            "short".getBytes(StandardCharsets.UTF_8),
+            "abcabcabcabcabcabcabcabcabcabcabcabc".getBytes(StandardCharsets.UTF_8),
+            new byte[1000],
+            randomBytes,
+            mixed};
+    }
+
+    @Nested
+    @DisplayName("Without Dictionary")
+    class WithoutDictionaryTests {
+
+        @Test
+        @DisplayName("should be readable by lz4-java")
+        void shouldBeReadableByLz4Java() {
+            for(byte[] input : inputs()) {
+                byte[] compressed = LZ4Block.compress(input, NO_DICTIONARY, LZ4Block.hashDictionary(NO_DICTIONARY));
+
+                byte[] restored = LZ4Factory.safeInstance().safeDecompressor().decompress(compressed, input.length);
+
+                assertArrayEquals(input, restored, "Length " + input.length);
+            }
+        }
+
+        @Test
+        @DisplayName("should not match positions of previously compressed values")
+        void shouldNotMatchPositionsOfPreviouslyCompressedValues() throws InterruptedException {
+            byte[][] inputs = inputs();
+            byte[][] sequential = new byte[inputs.length][];
+            for(int i = 0; i < inputs.length; i++) {
+                sequential[i] = LZ4Block.compress(inputs[i], NO_DICTIONARY, LZ4Block.hashDictionary(NO_DICTIONARY));
+            }
+
+            for(int i = 0; i < inputs.length; i++) {
+                byte[] input = inputs[i];
+                byte[][] fresh = new byte[1][];
+                Thread thread = new Thread(() -> fresh[0] = LZ4Block.compress(input, NO_DICTIONARY,
+                    LZ4Block.hashDictionary(NO_DICTIONARY)));
+                thread.start();
+                thread.join();
+
+                assertArrayEquals(fresh[0], sequential[i], "Length " + input.length);
+            }
+        }
+
+        @Test
+        @DisplayName("should read blocks of lz4-java")
+        void shouldReadBlocksOfLz4Java() {
+            for(byte[] input : inputs()) {
+                byte[] compressed = LZ4Factory.safeInstance().highCompressor().compress(input);
+
+                byte[] restored = LZ4Block.decompress(compressed, 0, compressed.length, input.length, NO_DICTIONARY);
+
+                assertArrayEquals(input, restored, "Length " + input.length);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("With Dictionary")
+    class WithDictionaryTests {
+
+        @Test
+        @DisplayName("should round trip with matches into the dictionary")
+        void shouldRoundTripWithMatchesIntoTheDictionary() {
+            byte[] dictionary = "{\"name\":\"alice\",\"email\":\"alice@example.com\"}".getBytes(StandardCharsets.UTF_8);
+            byte[] input = "{\"name\":\"bob\",\"email\":\"bob@example.com\"}".getBytes(StandardCharsets.UTF_8);
+
+            byte[] compressed = LZ4Block.compress(input, dictionary, LZ4Block.hashDictionary(dictionary));
+
+            assertTrue(compressed.length < input.length - 10, "Compressed: " + compressed.length);
+            assertArrayEquals(input, LZ4Block.decompress(compressed, 0, compressed.length, input.length, dictionary));
+        }
+
+        @Test
+        @DisplayName("should round trip matches spanning dictionary and input")
+        void shouldRoundTripMatchesSpanningDictionaryAndInput() {
+            byte[] dictionary = "0123456789abcdef".repeat(8).getBytes(StandardCharsets.UTF_8);
+            for(byte[] input : inputs()) {
+                byte[] compressed = LZ4Block.compress(input, dictionary, LZ4Block.hashDictionary(dictionary));
+
+                byte[] restored = LZ4Block.decompress(compressed, 0, compressed.length, input.length, dictionary);
+
+                assertArrayEquals(input, restored, "Length " + input.length);
+            }
+        }
+
+        @Test
+        @DisplayName("should reject malformed blocks")
+        void shouldRejectMalformedBlocks() {
+            byte[] dictionary = "dictionary".getBytes(StandardCharsets.UTF_8);
+            byte[] input = "dictionary dictionary dictionary".getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = LZ4Block.compress(input, dictionary, LZ4Block.hashDictionary(dictionary));
+
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4Block.decompress(compressed, 0, compressed.length - 1, input.length, dictionary));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4Block.decompress(compressed, 0, compressed.length, input.length, NO_DICTIONARY));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4Block.decompress(Arrays.copyOf(compressed, compressed.length), 0, compressed.length, input.length + 1,
+                    dictionary));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+@DisplayName("LZ4CodecRegistry")
+class LZ4CodecRegistryTest {
+
+    private LZ4CodecRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = LZ4CodecRegistry.create();
+    }
+
+    @Nested
+    @DisplayName("Shared Instances")
+    class SharedInstanceTests {
+
+        @Test
+        @DisplayName("should return the same codec for the same delegate and configuration")
+        void shouldReturnTheSameCodecForTheSameDelegateAndConfiguration() {
+            assertSame(registry.fastest(StringCodec.UTF8), registry.fastest(StringCodec.UTF8));
+            assertSame(registry.highCompression(StringCodec.UTF8),
+                registry.highCompression(StringCodec.UTF8, LZ4CompressionCodecFactory.DEFAULT_COMPRESSION_LEVEL));
+            assertSame(registry.listpack(StringCodec.UTF8), registry.listpack(StringCodec.UTF8));
+            assertSame(registry.frame(StringCodec.UTF8, LZ4FrameFormat.builder().contentChecksum(true).build()),
+                registry.frame(StringCodec.UTF8, LZ4FrameFormat.builder().contentChecksum(true).build()));
+            assertSame(registry.filtered(ByteArrayCodec.INSTANCE, ByteFilter.delta(4, ByteOrder.LITTLE_ENDIAN)),
+                registry.filtered(ByteArrayCodec.INSTANCE, ByteFilter.delta(4, ByteOrder.LITTLE_ENDIAN)));
+            assertEquals(5, registry.size());
+        }
+
+        @Test
+        @DisplayName("should return distinct codecs for other delegates and configurations")
+        void shouldReturnDistinctCodecsForOtherDelegatesAndConfigurations() {
+            RedisCodec<String, String> fastest = registry.fastest(StringCodec.UTF8);
+
+            assertNotSame(fastest, registry.fastest(StringCodec.ASCII));
+            assertNotSame(fastest, registry.safest(StringCodec.UTF8));
+            assertNotSame(registry.highCompression(StringCodec.UTF8, 3), registry.highCompression(StringCodec.UTF8, 4));
+            assertNotSame(registry.listpack(StringCodec.UTF8, ListpackTarget.create()),
+                registry.listpack(StringCodec.UTF8, ListpackTarget.create()));
+            assertNotSame(fastest, LZ4CodecRegistry.create().fastest(StringCodec.UTF8));
+        }
+
+        @Test
+        @DisplayName("should register nothing for invalid configurations")
+        void shouldRegisterNothingForInvalidConfigurations() {
+            assertThrows(IllegalArgumentException.class, () -> registry.fastest(null));
+            assertThrows(IllegalArgumentException.class, () -> registry.highCompression(StringCodec.UTF8, 0));
+            assertThrows(IllegalArgumentException.class, () -> registry.filtered(StringCodec.UTF8, null));
+            assertEquals(0, registry.size());
+        }
+
+        @Test
+        @DisplayName("should forget codecs on clear")
+        void shouldForgetCodecsOnClear() {
+            RedisCodec<String, String> codec = registry.fastest(StringCodec.UTF8);
+
+            registry.clear();
+
+            assertEquals(0, registry.size());
+            assertNotSame(codec, registry.fastest(StringCodec.UTF8));
+            assertSame(LZ4CodecRegistry.shared(), LZ4CodecRegistry.shared());
+        }
+    }
+
+    @Nested
+    @DisplayName("Warm-Up")
+    class WarmUpTests {
+
+        @Test
+        @DisplayName("should warm up registered configurations without touching their codecs")
+        void shouldWarmUpRegisteredConfigurationsWithoutTouchingTheirCodecs() {
+            ListpackTarget target = ListpackTarget.create();
+            RedisCodec<String, String> codec = registry.listpack(StringCodec.UTF8, target);
+            registry.highCompression(StringCodec.UTF8);
+            registry.frame(StringCodec.UTF8);
+
+            registry.warmUp(100);
+
+            assertEquals(0, target.fitting() + target.oversized());
+            assertEquals(3, registry.size());
+            assertSame(codec, registry.listpack(StringCodec.UTF8, target));
+        }
+
+        @Test
+        @DisplayName("should warm up delegates unable to read synthetic payloads")
+        void shouldWarmUpDelegatesUnableToReadSyntheticPayloads() {
+            RedisCodec<String, Integer> numbers = new RedisCodec<>() {
+
+                @Override
+                public String decodeKey(ByteBuffer bytes) {
+                    return StringCodec.UTF8.decodeKey(bytes);
+                }
+
+                @Override
+                public Integer decodeValue(ByteBuffer bytes) {
+                    return Integer.parseInt(StringCodec.UTF8.decodeValue(bytes));
+                }
+
+                @Override
+                public ByteBuffer encodeKey(String key) {
+                    return StringCodec.UTF8.encodeKey(key);
+                }
+
+                @Override
+                public ByteBuffer encodeValue(Integer value) {
+                    return StringCodec.UTF8.encodeValue(Integer.toString(value));
+                }
+            };
+            RedisCodec<String, Integer> codec = registry.fastest(numbers);
+
+            registry.warmUp(100);
+
+            assertEquals(42, codec.decodeValue(codec.encodeValue(42)));
+        }
+
+        @Test
+        @DisplayName("should warm up an empty registry")
+        void shouldWarmUpAnEmptyRegistry() {
+            registry.warmUp();
+
+            assertEquals(0, registry.size());
+        }
+
+        @Test
+        @DisplayName("should reject non-positive rounds")
+        void shouldRejectNonPositiveRounds() {
+            assertThrows(IllegalArgumentException.class, () -> registry.warmUp(0));
+        }
+    }
+}
@@ -40,35 +40,45 @@ class LZ4CompressingCodecTest {
     @DisplayName("Constructor")
     class ConstructorTests {
 
-        @SuppressWarnings({"rawtypes", "unchecked"})
         @Test
         @DisplayName("should create codec with valid parameters")
         void shouldCreateCodecWithValidParameters() {
             assertDoesNotThrow(() ->
-                new LZ4CompressingCodec((RedisCodec) stringCodec, compressor, decompressor));
+                new LZ4CompressingCodec<>(stringCodec, compressor, decompressor));
+        }
+
+        @Test
+        @DisplayName("should keep the key and value types of the delegate")
+        void shouldKeepTheKeyAndValueTypesOfTheDelegate() {
+            LZ4CompressingCodec<String, byte[]> codec = new LZ4CompressingCodec<>(byteArrayCodec, compressor, decompressor);
+            byte[] originalValue = "typed value".getBytes(StandardCharsets.UTF_8);
+
+            String key = codec.decodeKey(codec.encodeKey("typed-key"));
+            byte[] value = codec.decodeValue(codec.encodeValue(originalValue));
+
+            assertEquals("typed-key", key);
+            assertArrayEquals(originalValue, value);
         }
 
         @Test
         @DisplayName("should throw when delegate is null")
         void shouldThrowWhenDelegateIsNull() {
             assertThrows(NullPointerException.class, () ->
-                new LZ4CompressingCodec(null, compressor, decompressor));
+                new LZ4CompressingCodec<>(null, compressor, decompressor));
         }
 
-        @SuppressWarnings({"rawtypes", "unchecked"})
         @Test
         @DisplayName("should throw when compressor is null")
         void shouldThrowWhenCompressorIsNull() {
             assertThrows(NullPointerException.class, () ->
-                new LZ4CompressingCodec((RedisCodec) stringCodec, null, decompressor));
+                new LZ4CompressingCodec<>(stringCodec, null, decompressor));
         }
 
-        @SuppressWarnings({"rawtypes", "unchecked"})
         @Test
         @DisplayName("should throw when decompressor is null")
         void shouldThrowWhenDecompressorIsNull() {
             assertThrows(NullPointerException.class, () ->
-                new LZ4CompressingCodec((RedisCodec) stringCodec, compressor, null));
+                new LZ4CompressingCodec<>(stringCodec, compressor, null));
         }
     }
 
@@ -290,8 +300,7 @@ class LZ4CompressingCodecTest {
                 }
             };
 
-            @SuppressWarnings({"rawtypes", "unchecked"})
-            RedisCodec<String, String> faultyCodec = (RedisCodec) new LZ4CompressingCodec((RedisCodec) throwingCodec, compressor, decompressor);
+            RedisCodec<String, String> faultyCodec = new LZ4CompressingCodec<>(throwingCodec, compressor, decompressor);
 
             RuntimeException exception = assertThrows(RuntimeException.class, () ->
                 faultyCodec.encodeValue("test"));
@@ -332,9 +341,8 @@ class LZ4CompressingCodecTest {
         @DisplayName("should work with high compressor")
         void shouldWorkWithHighCompressor() {
             LZ4Factory factory = LZ4Factory.fastestInstance();
-            @SuppressWarnings({"rawtypes", "unchecked"})
-            RedisCodec<String, String> codec = (RedisCodec) new LZ4CompressingCodec(
-                (RedisCodec) stringCodec,
+            RedisCodec<String, String> codec = new LZ4CompressingCodec<>(
+                stringCodec,
                 factory.highCompressor(),
                 factory.fastDecompressor()
             );
@@ -347,6 +355,307 @@ class LZ4CompressingCodecTest {
         }
     }
 
+    @Nested
+    @DisplayName("Filtered Values")
+    class FilteredValueTests {
+
+        private byte[] timeSeries() {
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 4096);
+            java.util.Random random = new java.util.Random(42);
+            long timestamp = 1_700_000_000_000L;
+            for(int i = 0; i < 4096; i++) {
+                timestamp += 1000 + random.nextInt(16);
+                buffer.putLong(timestamp);
+            }
+            return buffer.array();
+        }
+
+        @Test
+        @DisplayName("should compress and decompress filtered values")
+        void shouldCompressAndDecompressFilteredValues() {
+            byte[] originalValue = timeSeries();
+
+            for(ByteFilter filter : new ByteFilter[] {
+                ByteFilter.shuffle(8),
+                ByteFilter.delta(8, java.nio.ByteOrder.BIG_ENDIAN),
+                ByteFilter.deltaShuffle(8, java.nio.ByteOrder.BIG_ENDIAN)}) {
+                RedisCodec<String, byte[]> codec = LZ4CompressionCodecFactory.filtered(byteArrayCodec, filter);
+
+                ByteBuffer compressed = codec.encodeValue(originalValue);
+
+                assertArrayEquals(originalValue, codec.decodeValue(compressed), filter.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("should improve the ratio of numeric arrays")
+        void shouldImproveTheRatioOfNumericArrays() {
+            byte[] originalValue = timeSeries();
+
+            int plain = LZ4CompressionCodecFactory.fastest(byteArrayCodec).encodeValue(originalValue).remaining();
+            int filtered = LZ4CompressionCodecFactory.filtered(byteArrayCodec,
+                ByteFilter.deltaShuffle(8, java.nio.ByteOrder.BIG_ENDIAN)).encodeValue(originalValue).remaining();
+
+            assertTrue(filtered * 2 < plain, "Filtered: " + filtered + ", plain: " + plain);
+        }
+
+        @Test
+        @DisplayName("should decode filtered values with codecs without filter")
+        void shouldDecodeFilteredValuesWithCodecsWithoutFilter() {
+            byte[] originalValue = timeSeries();
+            ByteBuffer compressed = LZ4CompressionCodecFactory.filtered(byteArrayCodec, ByteFilter.shuffle(8))
+                .encodeValue(originalValue);
+
+            RedisCodec<String, byte[]> codec = LZ4CompressionCodecFactory.safest(byteArrayCodec);
+
+            assertArrayEquals(originalValue, codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should keep the original layout without filter")
+        void shouldKeepTheOriginalLayoutWithoutFilter() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.fastest(stringCodec).encodeValue("value");
+
+            assertEquals(5, compressed.getInt(0));
+        }
+
+        @Test
+        @DisplayName("should mark filtered values in the header")
+        void shouldMarkFilteredValuesInTheHeader() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.filtered(byteArrayCodec, ByteFilter.shuffle(8))
+                .encodeValue(timeSeries());
+
+            assertEquals((byte) 0x81, compressed.get(0));
+        }
+
+        @Test
+        @DisplayName("should reject unknown header flags")
+        void shouldRejectUnknownHeaderFlags() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.filtered(byteArrayCodec, ByteFilter.shuffle(8))
+                .encodeValue(timeSeries());
+            compressed.put(0, (byte) 0xC1);
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                LZ4CompressionCodecFactory.fastest(byteArrayCodec).decodeValue(compressed));
+
+            assertEquals("Failed to decompress value", exception.getMessage());
+        }
+
+    @Nested
+    @DisplayName("Dictionary Values")
+    class DictionaryValueTests {
+
+        private String user(int id) {
+            return "{\"id\":" + id + ",\"name\":\"user-" + id + "\",\"email\":\"user" + id
+                + "@example.com\",\"active\":true,\"roles\":[\"reader\"]}";
+        }
+
+        private LZ4DictionaryRegistry registry(int... ids) {
+            LZ4DictionaryRegistry.Builder builder = LZ4DictionaryRegistry.builder();
+            for(int id : ids) {
+                builder.register(LZ4Dictionary.of(id, (user(1000 + id) + user(2000 + id)).getBytes(StandardCharsets.UTF_8)));
+            }
+            return builder.build();
+        }
+
+        @Test
+        @DisplayName("should compress and decompress dictionary values")
+        void shouldCompressAndDecompressDictionaryValues() {
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1));
+
+            for(String originalValue : new String[] {"", "x", user(7), user(8).repeat(20)}) {
+                assertEquals(originalValue, codec.decodeValue(codec.encodeValue(originalValue)));
+            }
+        }
+
+        @Test
+        @DisplayName("should mark dictionary values in the header")
+        void shouldMarkDictionaryValuesInTheHeader() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1, 3)).encodeValue(user(7));
+
+            assertEquals((byte) 0x82, compressed.get(0));
+            assertEquals(3, compressed.getInt(1));
+        }
+
+        @Test
+        @DisplayName("should decode values of retired dictionaries")
+        void shouldDecodeValuesOfRetiredDictionaries() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1)).encodeValue(user(7));
+
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1, 2));
+
+            assertEquals(user(7), codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should decode values without dictionary")
+        void shouldDecodeValuesWithoutDictionary() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.fastest(stringCodec).encodeValue(user(7));
+
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1));
+
+            assertEquals(user(7), codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should combine dictionary and filter")
+        void shouldCombineDictionaryAndFilter() {
+            RedisCodec<String, String> codec = new LZ4CompressingCodec<>(stringCodec, compressor, decompressor,
+                ByteFilter.shuffle(2), registry(1));
+
+            ByteBuffer compressed = codec.encodeValue(user(7));
+
+            assertEquals((byte) 0x83, compressed.get(0));
+            assertEquals(user(7), codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should fail on unknown dictionary IDs")
+        void shouldFailOnUnknownDictionaryIds() {
+            ByteBuffer compressed = LZ4CompressionCodecFactory.dictionary(stringCodec, registry(5)).encodeValue(user(7));
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                LZ4CompressionCodecFactory.dictionary(stringCodec, registry(1)).decodeValue(compressed));
+            assertEquals("Failed to decompress value", exception.getMessage());
+
+            assertThrows(RuntimeException.class, () ->
+                LZ4CompressionCodecFactory.fastest(stringCodec).decodeValue(compressed.rewind()));
+        }
+    }
+    }
+
+    @Nested
+    @DisplayName("Listpack Values")
+    class ListpackValueTests {
+
+        private RedisCodec<String, String> codec(ListpackTarget target) {
+            return new LZ4CompressingCodec<>(stringCodec, compressor, decompressor, null, null, target);
+        }
+
+        @Test
+        @DisplayName("should store values fitting uncompressed behind a marker")
+        void shouldStoreValuesFittingUncompressedBehindAMarker() {
+            ListpackTarget target = ListpackTarget.of(64);
+            String originalValue = "x".repeat(63);
+
+            ByteBuffer encoded = codec(target).encodeValue(originalValue);
+
+            assertEquals(64, encoded.remaining());
+            assertEquals((byte) 0x84, encoded.get(0));
+            assertEquals(originalValue, codec(target).decodeValue(encoded));
+            assertEquals(1, target.fitting());
+        }
+
+        @Test
+        @DisplayName("should compress values that only fit compressed")
+        void shouldCompressValuesThatOnlyFitCompressed() {
+            ListpackTarget target = ListpackTarget.of(64);
+            String originalValue = "\"status\":\"active\",".repeat(5);
+
+            ByteBuffer encoded = codec(target).encodeValue(originalValue);
+
+            assertTrue(originalValue.length() >= 64);
+            assertTrue(encoded.remaining() <= 64);
+            assertEquals(originalValue, codec(target).decodeValue(encoded));
+            assertEquals(1, target.fitting());
+            assertEquals(0, target.oversized());
+        }
+
+        @Test
+        @DisplayName("should count values that don't fit and keep the smaller encoding")
+        void shouldCountValuesThatDontFitAndKeepTheSmallerEncoding() {
+            ListpackTarget target = ListpackTarget.of(16);
+            StringBuilder random = new StringBuilder();
+            java.util.Random rand = new java.util.Random(12345);
+            for(int i = 0; i < 40; i++) {
+                random.append((char) (32 + rand.nextInt(95)));
+            }
+
+            ByteBuffer incompressible = codec(target).encodeValue(random.toString());
+            ByteBuffer compressible = codec(target).encodeValue("abcd".repeat(100));
+
+            assertEquals(41, incompressible.remaining());
+            assertEquals((byte) 0x84, incompressible.get(0));
+            assertTrue(compressible.remaining() > 16 && compressible.remaining() < 400);
+            assertEquals(random.toString(), codec(target).decodeValue(incompressible));
+            assertEquals("abcd".repeat(100), codec(target).decodeValue(compressible));
+            assertEquals(0, target.fitting());
+            assertEquals(2, target.oversized());
+        }
+
+        @Test
+        @DisplayName("should count empty values as fitting")
+        void shouldCountEmptyValuesAsFitting() {
+            ListpackTarget target = ListpackTarget.of(64);
+
+            assertEquals(0, codec(target).encodeValue("").remaining());
+            assertEquals(1, target.fitting());
+        }
+
+        @Test
+        @DisplayName("should decode stored values with codecs without target")
+        void shouldDecodeStoredValuesWithCodecsWithoutTarget() {
+            ByteBuffer encoded = codec(ListpackTarget.of(64)).encodeValue("stored");
+
+            assertEquals("stored", LZ4CompressionCodecFactory.fastest(stringCodec).decodeValue(encoded));
+        }
+    }
+
+    @Nested
+    @DisplayName("Frame Values")
+    class FrameValueTests {
+
+        private RedisCodec<String, String> codec() {
+            return LZ4CompressingCodec.frame(stringCodec, compressor, decompressor, LZ4FrameFormat.defaults());
+        }
+
+        @Test
+        @DisplayName("should write values as LZ4 frames")
+        void shouldWriteValuesAsLz4Frames() {
+            String originalValue = "frame value ".repeat(50);
+
+            ByteBuffer encoded = codec().encodeValue(originalValue);
+
+            assertEquals(0x184D2204, encoded.order(java.nio.ByteOrder.LITTLE_ENDIAN).getInt(0));
+            assertEquals(originalValue, codec().decodeValue(encoded));
+        }
+
+        @Test
+        @DisplayName("should write empty values as frames")
+        void shouldWriteEmptyValuesAsFrames() {
+            ByteBuffer encoded = codec().encodeValue("");
+
+            assertTrue(encoded.hasRemaining());
+            assertEquals("", codec().decodeValue(encoded));
+        }
+
+        @Test
+        @DisplayName("should decode values of codecs without frame format")
+        void shouldDecodeValuesOfCodecsWithoutFrameFormat() {
+            String originalValue = "legacy value ".repeat(20);
+
+            assertEquals(originalValue, codec().decodeValue(LZ4CompressionCodecFactory.fastest(stringCodec)
+                .encodeValue(originalValue)));
+            assertEquals(originalValue, codec().decodeValue(LZ4CompressionCodecFactory.filtered(stringCodec,
+                ByteFilter.shuffle(2)).encodeValue(originalValue)));
+        }
+
+        @Test
+        @DisplayName("should throw when frame format is null")
+        void shouldThrowWhenFrameFormatIsNull() {
+            assertThrows(NullPointerException.class, () ->
+                LZ4CompressingCodec.frame(stringCodec, compressor, decompressor, null));
+        }
+
+        @Test
+        @DisplayName("should construct codecs without frame format from a null filter")
+        void shouldConstructCodecsWithoutFrameFormatFromANullFilter() {
+            LZ4CompressingCodec<String, String> codec = new LZ4CompressingCodec<>(stringCodec, compressor, decompressor, null);
+
+            assertNull(codec.frameFormat());
+        }
+    }
+
     @Nested
     @DisplayName("Compression Efficiency")
     class CompressionEfficiencyTests {
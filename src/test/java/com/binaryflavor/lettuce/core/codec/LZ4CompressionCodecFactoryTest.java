@@ -2,7 +2,10 @@ package com.binaryflavor.lettuce.core.codec;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +14,9 @@ import org.junit.jupiter.api.Test;
 
 import net.jpountz.lz4.LZ4Factory;
 
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
@@ -214,6 +220,254 @@ class LZ4CompressionCodecFactoryTest {
         }
     }
 
+    @Nested
+    @DisplayName("Factory Method: vectorizedInstance")
+    class VectorizedInstanceFactoryTests {
+
+        @Test
+        @DisplayName("should compress and decompress values correctly")
+        void shouldCompressAndDecompressValuesCorrectly() {
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.vectorizedInstance(stringCodec);
+            String originalValue = "Test value for vectorized instance factory";
+
+            ByteBuffer compressed = codec.encodeValue(originalValue);
+
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertEquals(originalValue, codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should produce the same values as the safest codec")
+        void shouldProduceTheSameValuesAsTheSafestCodec() {
+            String originalValue = "Compatibility test value, compatibility test value, compatibility test value";
+
+            ByteBuffer vectorized = LZ4CompressionCodecFactory.vectorizedInstance(stringCodec).encodeValue(originalValue);
+            ByteBuffer safest = LZ4CompressionCodecFactory.safest(stringCodec).encodeValue(originalValue);
+
+            assertEquals(safest, vectorized);
+            assertEquals(originalValue, LZ4CompressionCodecFactory.fastest(stringCodec).decodeValue(vectorized));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException when delegate is null")
+        void shouldThrowIllegalArgumentExceptionWhenDelegateIsNull() {
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.vectorizedInstance(null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: highCompression")
+    class HighCompressionFactoryTests {
+
+        @Test
+        @DisplayName("should create codec using LZ4 HC")
+        void shouldCreateCodecUsingLZ4HC() {
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.highCompression(stringCodec);
+
+            assertNotNull(codec);
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+        }
+
+        @Test
+        @DisplayName("should compress and decompress values at every level")
+        void shouldCompressAndDecompressValuesAtEveryLevel() {
+            String originalValue = "Test value for high compression factory ".repeat(20);
+
+            for(int level = 1; level <= LZ4CompressionCodecFactory.MAX_COMPRESSION_LEVEL; level++) {
+                RedisCodec<String, String> codec = LZ4CompressionCodecFactory.highCompression(stringCodec, level);
+
+                ByteBuffer compressed = codec.encodeValue(originalValue);
+                assertEquals(originalValue, codec.decodeValue(compressed), "Failed with level: " + level);
+            }
+        }
+
+        @Test
+        @DisplayName("should be readable by fast compression codecs")
+        void shouldBeReadableByFastCompressionCodecs() {
+            String originalValue = "Cross-compressor compatibility test value ".repeat(10);
+
+            ByteBuffer compressed = LZ4CompressionCodecFactory.highCompression(stringCodec, LZ4CompressionCodecFactory.MAX_COMPRESSION_LEVEL)
+                .encodeValue(originalValue);
+
+            assertEquals(originalValue, LZ4CompressionCodecFactory.fastest(stringCodec).decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on invalid arguments")
+        void shouldThrowIllegalArgumentExceptionOnInvalidArguments() {
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.highCompression(null));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.highCompression(stringCodec, 0));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.highCompression(stringCodec, LZ4CompressionCodecFactory.MAX_COMPRESSION_LEVEL + 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: filtered")
+    class FilteredFactoryTests {
+
+        @Test
+        @DisplayName("should compress and decompress values correctly")
+        void shouldCompressAndDecompressValuesCorrectly() {
+            RedisCodec<String, byte[]> codec = LZ4CompressionCodecFactory.filtered(byteArrayCodec, ByteFilter.shuffle(4));
+            byte[] originalValue = "Test value for filtered factory".getBytes();
+
+            ByteBuffer compressed = codec.encodeValue(originalValue);
+
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertArrayEquals(originalValue, codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on null arguments")
+        void shouldThrowIllegalArgumentExceptionOnNullArguments() {
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.filtered(null, ByteFilter.shuffle(4)));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.filtered(byteArrayCodec, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: dictionary")
+    class DictionaryFactoryTests {
+
+        @Test
+        @DisplayName("should compress and decompress values correctly")
+        void shouldCompressAndDecompressValuesCorrectly() {
+            LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder()
+                .register(LZ4Dictionary.of(1, "Test value for dictionary factory".getBytes()))
+                .build();
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.dictionary(stringCodec, dictionaries);
+            String originalValue = "Test value for dictionary factory";
+
+            ByteBuffer compressed = codec.encodeValue(originalValue);
+
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertTrue(compressed.remaining() < originalValue.length());
+            assertEquals(originalValue, codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on null arguments")
+        void shouldThrowIllegalArgumentExceptionOnNullArguments() {
+            LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder()
+                .register(LZ4Dictionary.of(1, new byte[] {1}))
+                .build();
+
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.dictionary(null, dictionaries));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.dictionary(stringCodec, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: uncompressed")
+    class UncompressedFactoryTests {
+
+        @Test
+        @DisplayName("should store values uncompressed")
+        void shouldStoreValuesUncompressed() {
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.uncompressed(stringCodec);
+            String originalValue = "Test value for uncompressed factory ".repeat(100);
+
+            ByteBuffer encoded = codec.encodeValue(originalValue);
+
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertEquals(originalValue.length() + 1, encoded.remaining());
+            assertEquals(originalValue, LZ4CompressionCodecFactory.fastest(stringCodec).decodeValue(encoded));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on null delegate")
+        void shouldThrowIllegalArgumentExceptionOnNullDelegate() {
+            assertThrows(IllegalArgumentException.class, () -> LZ4CompressionCodecFactory.uncompressed(null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: listpack")
+    class ListpackFactoryTests {
+
+        @Test
+        @DisplayName("should compress and decompress values correctly")
+        void shouldCompressAndDecompressValuesCorrectly() {
+            ListpackTarget target = ListpackTarget.create();
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.listpack(stringCodec, target);
+
+            for(String originalValue : new String[] {"short", "Test value for listpack factory ".repeat(4)}) {
+                ByteBuffer compressed = codec.encodeValue(originalValue);
+
+                assertTrue(compressed.remaining() <= ListpackTarget.DEFAULT_MAX_ELEMENT_SIZE);
+                assertEquals(originalValue, codec.decodeValue(compressed));
+            }
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertEquals(2, target.fitting());
+        }
+
+        @Test
+        @DisplayName("should encode sorted set members as values and hash fields as keys")
+        void shouldEncodeSortedSetMembersAsValuesAndHashFieldsAsKeys() throws IOException {
+            ListpackTarget target = ListpackTarget.create();
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.listpack(stringCodec, target);
+            String member = "sorted set member that compresses well ".repeat(4);
+            String field = "hash field ".repeat(8);
+
+            try(InProcessRedisServer server = InProcessRedisServer.start()) {
+                RedisClient client = RedisClient.create(server.uri());
+                try(StatefulRedisConnection<String, String> connection = client.connect(codec)) {
+                    assertThrows(RedisCommandExecutionException.class, () -> connection.sync().zadd("scores", 1.0, member));
+                    assertThrows(RedisCommandExecutionException.class, () -> connection.sync().hset("hash", field, "v"));
+                } finally {
+                    client.shutdown(0, 2, TimeUnit.SECONDS);
+                }
+
+                byte[] encodedMember = server.lastCommand("ZADD").get(3);
+                assertTrue(encodedMember.length <= ListpackTarget.DEFAULT_MAX_ELEMENT_SIZE, encodedMember.length + " bytes");
+                assertEquals(member, codec.decodeValue(ByteBuffer.wrap(encodedMember)));
+                assertArrayEquals(field.getBytes(StandardCharsets.UTF_8), server.lastCommand("HSET").get(2));
+                assertEquals(2, target.fitting());
+            }
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on null arguments")
+        void shouldThrowIllegalArgumentExceptionOnNullArguments() {
+            assertThrows(IllegalArgumentException.class, () -> LZ4CompressionCodecFactory.listpack(null));
+            assertThrows(IllegalArgumentException.class, () ->
+                LZ4CompressionCodecFactory.listpack(stringCodec, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Factory Method: frame")
+    class FrameFactoryTests {
+
+        @Test
+        @DisplayName("should compress and decompress values correctly")
+        void shouldCompressAndDecompressValuesCorrectly() {
+            RedisCodec<String, String> codec = LZ4CompressionCodecFactory.frame(stringCodec);
+            String originalValue = "Test value for frame factory ".repeat(10);
+
+            ByteBuffer compressed = codec.encodeValue(originalValue);
+
+            assertInstanceOf(LZ4CompressingCodec.class, codec);
+            assertEquals(0x04, compressed.get(0));
+            assertEquals(originalValue, codec.decodeValue(compressed));
+        }
+
+        @Test
+        @DisplayName("should throw IllegalArgumentException on null arguments")
+        void shouldThrowIllegalArgumentExceptionOnNullArguments() {
+            assertThrows(IllegalArgumentException.class, () -> LZ4CompressionCodecFactory.frame(null));
+            assertThrows(IllegalArgumentException.class, () -> LZ4CompressionCodecFactory.frame(stringCodec, null));
+        }
+    }
+
     @Nested
     @DisplayName("Factory Method: custom")
     class CustomFactoryTests {
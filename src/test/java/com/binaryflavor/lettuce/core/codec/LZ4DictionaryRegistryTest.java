@@ -0,0 +1,90 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("LZ4DictionaryRegistry")
+class LZ4DictionaryRegistryTest {
+
+    @Test
+    @DisplayName("should use the highest ID as active dictionary by default")
+    void shouldUseTheHighestIdAsActiveDictionaryByDefault() {
+        LZ4DictionaryRegistry registry = LZ4DictionaryRegistry.builder()
+            .register(LZ4Dictionary.of(2, new byte[] {2}))
+            .register(LZ4Dictionary.of(10, new byte[] {10}))
+            .register(LZ4Dictionary.of(7, new byte[] {7}))
+            .build();
+
+        assertEquals(10, registry.active().id());
+        assertEquals(7, registry.get(7).id());
+        assertNull(registry.get(3));
+        assertEquals(3, registry.dictionaries().size());
+    }
+
+    @Test
+    @DisplayName("should use the selected active dictionary")
+    void shouldUseTheSelectedActiveDictionary() {
+        LZ4DictionaryRegistry registry = LZ4DictionaryRegistry.builder()
+            .register(LZ4Dictionary.of(1, new byte[] {1}))
+            .register(LZ4Dictionary.of(2, new byte[] {2}))
+            .active(1)
+            .build();
+
+        assertEquals(1, registry.active().id());
+    }
+
+    @Test
+    @DisplayName("should load dictionaries from a directory")
+    void shouldLoadDictionariesFromADirectory(@TempDir Path directory) throws IOException {
+        Files.write(directory.resolve("1.lz4dict"), new byte[] {1, 1});
+        Files.write(directory.resolve("42.lz4dict"), new byte[] {4, 2});
+        Files.write(directory.resolve("README"), new byte[] {0});
+
+        LZ4DictionaryRegistry registry = LZ4DictionaryRegistry.builder().load(directory).build();
+
+        assertEquals(42, registry.active().id());
+        assertArrayEquals(new byte[] {1, 1}, registry.get(1).content());
+        assertEquals(2, registry.dictionaries().size());
+    }
+
+    @Test
+    @DisplayName("should reject dictionary files without numeric ID")
+    void shouldRejectDictionaryFilesWithoutNumericId(@TempDir Path directory) throws IOException {
+        Files.write(directory.resolve("latest.lz4dict"), new byte[] {1});
+
+        assertThrows(IOException.class, () -> LZ4DictionaryRegistry.builder().load(directory));
+    }
+
+    @Test
+    @DisplayName("should reject dictionary files with IDs out of range")
+    void shouldRejectDictionaryFilesWithIdsOutOfRange(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("2147483648.lz4dict");
+        Files.write(file, new byte[] {1});
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> LZ4DictionaryRegistry.builder().load(directory));
+        assertTrue(e.getMessage().endsWith(file.toString()), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException on invalid registrations")
+    void shouldThrowIllegalArgumentExceptionOnInvalidRegistrations() {
+        assertThrows(IllegalArgumentException.class, () -> LZ4DictionaryRegistry.builder().build());
+        assertThrows(IllegalArgumentException.class, () -> LZ4DictionaryRegistry.builder()
+            .register(LZ4Dictionary.of(1, new byte[] {1}))
+            .register(LZ4Dictionary.of(1, new byte[] {2})));
+        assertThrows(IllegalArgumentException.class, () -> LZ4DictionaryRegistry.builder()
+            .register(LZ4Dictionary.of(1, new byte[] {1}))
+            .active(2)
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> LZ4Dictionary.of(-1, new byte[] {1}));
+        assertThrows(IllegalArgumentException.class, () -> LZ4Dictionary.of(1, new byte[0]));
+    }
+}
@@ -0,0 +1,103 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+
+@DisplayName("LZ4DictionaryTrainer")
+class LZ4DictionaryTrainerTest {
+
+    private static List<byte[]> profiles(long seed, int count) {
+        Random random = new Random(seed);
+        String[] cities = {"Seoul", "Berlin", "Lisbon", "Toronto", "Osaka"};
+        List<byte[]> profiles = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"userId\":").append(random.nextInt(1_000_000))
+                .append(",\"displayName\":\"user").append(Integer.toHexString(random.nextInt()))
+                .append("\",\"city\":\"").append(cities[random.nextInt(cities.length)])
+                .append("\",\"preferences\":{\"newsletter\":").append(random.nextBoolean())
+                .append(",\"theme\":\"").append(random.nextBoolean() ? "dark" : "light")
+                .append("\",\"language\":\"en-US\"},\"lastLoginAt\":\"2024-0").append(1 + random.nextInt(9))
+                .append("-1").append(random.nextInt(10)).append("T12:").append(10 + random.nextInt(50))
+                .append(":00Z\",\"tags\":[");
+            for(int t = random.nextInt(12); t > 0; t--) {
+                json.append("\"tag-").append(random.nextInt(100)).append("\",");
+            }
+            json.append("\"member\"]}");
+            profiles.add(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return profiles;
+    }
+
+    private static long encodedSize(RedisCodec<byte[], byte[]> codec, List<byte[]> values) {
+        long size = 0;
+        for(byte[] value : values) {
+            ByteBuffer encoded = codec.encodeValue(value);
+            size += encoded.remaining();
+            assertArrayEquals(value, codec.decodeValue(encoded));
+        }
+        return size;
+    }
+
+    @Test
+    @DisplayName("should at least halve the size of small similar values")
+    void shouldAtLeastHalveTheSizeOfSmallSimilarValues() {
+        byte[] content = LZ4DictionaryTrainer.train(profiles(1, 2000), 16 * 1024);
+        LZ4DictionaryRegistry dictionaries = LZ4DictionaryRegistry.builder()
+            .register(LZ4Dictionary.of(1, content))
+            .build();
+        List<byte[]> values = profiles(2, 500);
+
+        long plain = encodedSize(LZ4CompressionCodecFactory.fastest(ByteArrayCodec.INSTANCE), values);
+        long trained = encodedSize(LZ4CompressionCodecFactory.dictionary(ByteArrayCodec.INSTANCE, dictionaries), values);
+
+        assertTrue(trained * 2 <= plain, "Trained: " + trained + ", plain: " + plain);
+    }
+
+    @Test
+    @DisplayName("should respect the maximum size")
+    void shouldRespectTheMaximumSize() {
+        byte[] content = LZ4DictionaryTrainer.train(profiles(1, 2000), 1000);
+
+        assertTrue(content.length > 0);
+        assertTrue(content.length <= 1000);
+    }
+
+    @Test
+    @DisplayName("should return an empty dictionary for unrelated samples")
+    void shouldReturnAnEmptyDictionaryForUnrelatedSamples() {
+        Random random = new Random(3);
+        List<byte[]> samples = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            byte[] sample = new byte[200];
+            random.nextBytes(sample);
+            samples.add(sample);
+        }
+
+        assertEquals(0, LZ4DictionaryTrainer.train(samples, 1000).length);
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException on invalid arguments")
+    void shouldThrowIllegalArgumentExceptionOnInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> LZ4DictionaryTrainer.train(null, 1000));
+        assertThrows(IllegalArgumentException.class, () ->
+            LZ4DictionaryTrainer.train(Collections.singletonList(null), 1000));
+        assertThrows(IllegalArgumentException.class, () ->
+            LZ4DictionaryTrainer.train(profiles(1, 10), 0));
+        assertThrows(IllegalArgumentException.class, () ->
+            LZ4DictionaryTrainer.train(profiles(1, 10), LZ4Dictionary.MAX_SIZE + 1));
+    }
+}
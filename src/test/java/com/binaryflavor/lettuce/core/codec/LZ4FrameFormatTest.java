@@ -0,0 +1,239 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE;
+
+/**
+ * Golden frames in {@code /lz4-frames} are written by the reference LZ4 library, see the {@code README.md} there:
+ * {@code cli-*} frames with the preferences of the {@code lz4} command line tool (independent blocks, content checksum),
+ * {@code python-*} frames with those of Python's {@code lz4.frame} (linked blocks, content size).
+ */
+@DisplayName("LZ4FrameFormat")
+class LZ4FrameFormatTest {
+
+    private static final byte[] HELLO = "Hello, LZ4 frame!\n".getBytes(StandardCharsets.UTF_8);
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static byte[] golden(String name) throws IOException {
+        try(InputStream in = LZ4FrameFormatTest.class.getResourceAsStream("/lz4-frames/" + name)) {
+            assertNotNull(in, name);
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] repeat(char c, int count) {
+        byte[] bytes = new byte[count];
+        Arrays.fill(bytes, (byte) c);
+        return bytes;
+    }
+
+    private static byte[] json(int size) {
+        StringBuilder json = new StringBuilder();
+        Random random = new Random(42);
+        while(json.length() < size) {
+            json.append("{\"id\":").append(random.nextInt(1_000_000)).append(",\"active\":").append(random.nextBoolean())
+                .append("},");
+        }
+        return json.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("Golden Frames")
+    class GoldenFrameTests {
+
+        @Test
+        @DisplayName("should decode frames of the lz4 command line tool")
+        void shouldDecodeFramesOfTheLz4CommandLineTool() throws IOException {
+            assertArrayEquals(new byte[0], LZ4FrameFormat.decode(golden("cli-empty.lz4")));
+            assertArrayEquals(HELLO, LZ4FrameFormat.decode(golden("cli-hello.lz4")));
+            assertArrayEquals(repeat('a', 64), LZ4FrameFormat.decode(golden("cli-a64.lz4")));
+            assertArrayEquals(HELLO, LZ4FrameFormat.decode(golden("cli-checksums.lz4")));
+        }
+
+        @Test
+        @DisplayName("should decode frames of Python lz4.frame")
+        void shouldDecodeFramesOfPythonLz4Frame() throws IOException {
+            assertArrayEquals(repeat('a', 64), LZ4FrameFormat.decode(golden("python-a64.lz4")));
+        }
+
+        @Test
+        @DisplayName("should decode linked blocks referencing the previous block")
+        void shouldDecodeLinkedBlocksReferencingThePreviousBlock() throws IOException {
+            byte[] expected = Arrays.copyOf(repeat('a', 65536 + 32), 65536 + 37);
+            System.arraycopy("bcdef".getBytes(StandardCharsets.US_ASCII), 0, expected, 65536 + 32, 5);
+
+            assertArrayEquals(expected, LZ4FrameFormat.decode(golden("python-linked.lz4")));
+        }
+
+        @Test
+        @DisplayName("should write the same frames as the lz4 command line tool")
+        void shouldWriteTheSameFramesAsTheLz4CommandLineTool() throws IOException {
+            LZ4FrameFormat format = LZ4FrameFormat.builder().contentSize(false).contentChecksum(true).build();
+
+            assertArrayEquals(golden("cli-empty.lz4"), format.encode(new byte[0], compressor));
+            assertArrayEquals(golden("cli-hello.lz4"), format.encode(HELLO, compressor));
+            assertArrayEquals(golden("cli-a64.lz4"), format.encode(repeat('a', 64), compressor));
+        }
+
+        @Test
+        @DisplayName("should write content size and checksums like the lz4 command line tool")
+        void shouldWriteContentSizeAndChecksumsLikeTheLz4CommandLineTool() throws IOException {
+            LZ4FrameFormat format = LZ4FrameFormat.builder().contentChecksum(true).blockChecksum(true).build();
+
+            assertArrayEquals(golden("cli-checksums.lz4"), format.encode(HELLO, compressor));
+        }
+    }
+
+    @Nested
+    @DisplayName("Round Trips")
+    class RoundTripTests {
+
+        @Test
+        @DisplayName("should round-trip values spanning several blocks")
+        void shouldRoundTripValuesSpanningSeveralBlocks() {
+            byte[] value = json(300_000);
+            LZ4FrameFormat format = LZ4FrameFormat.builder().contentChecksum(true).blockChecksum(true).build();
+
+            byte[] frame = format.encode(value, compressor);
+
+            assertTrue(frame.length < value.length / 2);
+            assertArrayEquals(value, LZ4FrameFormat.decode(frame));
+        }
+
+        @Test
+        @DisplayName("should store incompressible blocks uncompressed")
+        void shouldStoreIncompressibleBlocksUncompressed() {
+            byte[] value = new byte[100_000];
+            new Random(7).nextBytes(value);
+
+            byte[] frame = LZ4FrameFormat.defaults().encode(value, compressor);
+
+            assertEquals(value.length + 7 + 8 + 2 * 4 + 4, frame.length);
+            assertArrayEquals(value, LZ4FrameFormat.decode(frame));
+        }
+
+        @Test
+        @DisplayName("should be read by the lz4-java frame reader")
+        void shouldBeReadByTheLz4JavaFrameReader() throws IOException {
+            byte[] value = json(200_000);
+            LZ4FrameFormat format = LZ4FrameFormat.builder().blockSize(BLOCKSIZE.SIZE_256KB).contentChecksum(true)
+                .blockChecksum(true).build();
+
+            try(InputStream in = new LZ4FrameInputStream(new ByteArrayInputStream(format.encode(value, compressor)))) {
+                assertArrayEquals(value, in.readAllBytes());
+            }
+        }
+
+        @Test
+        @DisplayName("should read frames of the lz4-java frame writer")
+        void shouldReadFramesOfTheLz4JavaFrameWriter() throws IOException {
+            byte[] value = json(200_000);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            try(LZ4FrameOutputStream out = new LZ4FrameOutputStream(frame, BLOCKSIZE.SIZE_64KB, value.length,
+                LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE, LZ4FrameOutputStream.FLG.Bits.CONTENT_SIZE,
+                LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM, LZ4FrameOutputStream.FLG.Bits.BLOCK_CHECKSUM)) {
+                out.write(value);
+            }
+
+            assertArrayEquals(value, LZ4FrameFormat.decode(frame.toByteArray()));
+        }
+
+        @Test
+        @DisplayName("should not allocate the maximum block size for small frames")
+        void shouldNotAllocateTheMaximumBlockSizeForSmallFrames() {
+            assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+            byte[] value = json(1000);
+            byte[] withoutSize = LZ4FrameFormat.builder().blockSize(BLOCKSIZE.SIZE_4MB).contentSize(false).build()
+                .encode(value, compressor);
+            byte[] withSize = LZ4FrameFormat.builder().blockSize(BLOCKSIZE.SIZE_4MB).build().encode(value, compressor);
+
+            for(byte[] frame : new byte[][] {withoutSize, withSize}) {
+                LZ4FrameFormat.decode(frame);
+                long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                for(int i = 0; i < 100; i++) {
+                    assertArrayEquals(value, LZ4FrameFormat.decode(frame));
+                }
+                long perDecode = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100;
+
+                assertTrue(perDecode < 512 * 1024, "allocated " + perDecode + " bytes per decode");
+            }
+        }
+
+        @Test
+        @DisplayName("should decode concatenated and skippable frames")
+        void shouldDecodeConcatenatedAndSkippableFrames() throws IOException {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            frames.write(golden("cli-hello.lz4"));
+            frames.write(new byte[] {0x53, 0x2A, 0x4D, 0x18, 3, 0, 0, 0, 1, 2, 3});
+            frames.write(golden("python-a64.lz4"));
+
+            byte[] expected = Arrays.copyOf(HELLO, HELLO.length + 64);
+            Arrays.fill(expected, HELLO.length, expected.length, (byte) 'a');
+
+            assertArrayEquals(expected, LZ4FrameFormat.decode(frames.toByteArray()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Malformed Frames")
+    class MalformedFrameTests {
+
+        @Test
+        @DisplayName("should reject corrupted descriptors and checksums")
+        void shouldRejectCorruptedDescriptorsAndChecksums() throws IOException {
+            byte[] descriptor = golden("cli-checksums.lz4");
+            descriptor[6] ^= 1;
+            byte[] block = golden("cli-checksums.lz4");
+            block[block.length - 12] ^= 1;
+            byte[] content = golden("cli-hello.lz4");
+            content[content.length - 1] ^= 1;
+
+            assertThrows(IllegalArgumentException.class, () -> LZ4FrameFormat.decode(descriptor));
+            assertThrows(IllegalArgumentException.class, () -> LZ4FrameFormat.decode(block));
+            assertThrows(IllegalArgumentException.class, () -> LZ4FrameFormat.decode(content));
+        }
+
+        @Test
+        @DisplayName("should reject truncated frames")
+        void shouldRejectTruncatedFrames() throws IOException {
+            byte[] frame = golden("python-linked.lz4");
+
+            for(int length : new int[] {3, 6, 15, 20, frame.length - 1}) {
+                assertThrows(IllegalArgumentException.class, () -> LZ4FrameFormat.decode(Arrays.copyOf(frame, length)));
+            }
+        }
+
+        @Test
+        @DisplayName("should reject content size mismatches")
+        void shouldRejectContentSizeMismatches() {
+            byte[] frame = LZ4FrameFormat.defaults().encode(HELLO, compressor);
+            byte[] longer = LZ4FrameFormat.defaults().encode(Arrays.copyOf(HELLO, HELLO.length + 1), compressor);
+            // swap in the descriptor of a frame announcing one more byte
+            System.arraycopy(longer, 0, frame, 0, 15);
+
+            assertThrows(IllegalArgumentException.class, () -> LZ4FrameFormat.decode(frame));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+@DisplayName("LZ4VectorizedEngine")
+class LZ4VectorizedEngineTest {
+
+    private final LZ4Compressor compressor = LZ4VectorizedEngine.compressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4VectorizedEngine.fastDecompressor();
+
+    /**
+     * Inputs around the 64 KiB limit with varying entropy, from incompressible to long runs.
+     */
+    private static byte[][] inputs() {
+        Random random = new Random(11);
+        int[] lengths = {0, 1, 12, 13, 14, 100, 1000, 4096, 65535, 65546, 65547, 70000, 300000};
+        int[] alphabets = {256, 8, 3, 1};
+        byte[][] inputs = new byte[lengths.length * alphabets.length + 1][];
+        int i = 0;
+        for(int length : lengths) {
+            for(int alphabet : alphabets) {
+                byte[] input = new byte[length];
+                for(int j = 0; j < length; j++) {
+                    input[j] = (byte) (random.nextInt(alphabet) + (j % 50 == 0 ? random.nextInt() : 0));
+                }
+                inputs[i++] = input;
+            }
+        }
+        inputs[i] = "{\"id\":1,\"name\":\"value\"}".repeat(500).getBytes(StandardCharsets.UTF_8);
+        return inputs;
+    }
+
+    @Nested
+    @DisplayName("Compression")
+    class CompressionTests {
+
+        @Test
+        @DisplayName("should produce the same blocks as the lz4-java compressors")
+        void shouldProduceTheSameBlocksAsTheLz4JavaCompressors() {
+            for(byte[] input : inputs()) {
+                byte[] expected = LZ4Factory.safeInstance().fastCompressor().compress(input);
+
+                assertArrayEquals(expected, compressor.compress(input), "Length " + input.length);
+                assertArrayEquals(expected, LZ4Factory.unsafeInstance().fastCompressor().compress(input));
+            }
+        }
+
+        @Test
+        @DisplayName("should respect offsets")
+        void shouldRespectOffsets() {
+            byte[] input = inputs()[26];
+            byte[] padded = new byte[input.length + 7];
+            System.arraycopy(input, 0, padded, 3, input.length);
+            byte[] dest = new byte[compressor.maxCompressedLength(input.length) + 5];
+
+            int length = compressor.compress(padded, 3, input.length, dest, 5, dest.length - 5);
+
+            assertArrayEquals(compressor.compress(input), Arrays.copyOfRange(dest, 5, 5 + length));
+        }
+
+        @Test
+        @DisplayName("should compress direct buffers")
+        void shouldCompressDirectBuffers() {
+            byte[] input = inputs()[30];
+            ByteBuffer src = ByteBuffer.allocateDirect(input.length).put(input).flip();
+            ByteBuffer dest = ByteBuffer.allocateDirect(compressor.maxCompressedLength(input.length));
+
+            compressor.compress(src, dest);
+            dest.flip();
+
+            byte[] compressed = new byte[dest.remaining()];
+            dest.get(compressed);
+            assertArrayEquals(compressor.compress(input), compressed);
+        }
+
+        @Test
+        @DisplayName("should fail when the destination is too small")
+        void shouldFailWhenTheDestinationIsTooSmall() {
+            byte[] input = inputs()[24];
+
+            assertThrows(LZ4Exception.class, () -> compressor.compress(input, 0, input.length, new byte[100], 0, 100));
+        }
+    }
+
+    @Nested
+    @DisplayName("Decompression")
+    class DecompressionTests {
+
+        @Test
+        @DisplayName("should decompress blocks of every lz4-java compressor")
+        void shouldDecompressBlocksOfEveryLz4JavaCompressor() {
+            LZ4Compressor[] compressors = {
+                LZ4Factory.fastestInstance().fastCompressor(),
+                LZ4Factory.fastestInstance().highCompressor(),
+                LZ4Factory.safeInstance().highCompressor(17)};
+            for(byte[] input : inputs()) {
+                for(LZ4Compressor lz4Compressor : compressors) {
+                    byte[] compressed = lz4Compressor.compress(input);
+
+                    byte[] restored = new byte[input.length];
+                    int read = decompressor.decompress(compressed, 0, restored, 0, input.length);
+
+                    assertEquals(compressed.length, read);
+                    assertArrayEquals(input, restored, lz4Compressor + ", length " + input.length);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("should decompress direct buffers")
+        void shouldDecompressDirectBuffers() {
+            byte[] input = inputs()[30];
+            byte[] compressed = compressor.compress(input);
+            ByteBuffer src = ByteBuffer.allocateDirect(compressed.length).put(compressed).flip();
+            ByteBuffer dest = ByteBuffer.allocateDirect(input.length);
+
+            decompressor.decompress(src, dest);
+            dest.flip();
+
+            byte[] restored = new byte[input.length];
+            dest.get(restored);
+            assertArrayEquals(input, restored);
+        }
+
+        @Test
+        @DisplayName("should reject malformed blocks")
+        void shouldRejectMalformedBlocks() {
+            byte[] input = inputs()[26];
+            byte[] compressed = compressor.compress(input);
+
+            assertThrows(LZ4Exception.class, () -> decompressor.decompress(compressed, input.length + 1));
+            assertThrows(LZ4Exception.class, () ->
+                decompressor.decompress(Arrays.copyOf(compressed, compressed.length / 2), input.length));
+            assertThrows(LZ4Exception.class, () -> decompressor.decompress(new byte[] {0x10, 'a', 0, 0}, 8));
+            assertThrows(LZ4Exception.class, () -> decompressor.decompress(new byte[] {1}, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Fuzzing")
+    class FuzzingTests {
+
+        /**
+         * Random inputs mixing literals with copies of earlier bytes, so that matches of every length and distance end
+         * at every alignment.
+         */
+        private byte[] fuzzInput(Random random) {
+            byte[] input = new byte[random.nextInt(random.nextBoolean() ? 512 : 80_000)];
+            int alphabet = 1 + random.nextInt(256);
+            int i = 0;
+            while(i < input.length) {
+                if(i > 4 && random.nextInt(3) == 0) {
+                    int distance = 1 + random.nextInt(Math.min(i, 70_000));
+                    int length = Math.min(input.length - i, 1 + random.nextInt(random.nextBoolean() ? 16 : 2000));
+                    for(int j = 0; j < length; j++, i++) {
+                        input[i] = input[i - distance];
+                    }
+                } else {
+                    input[i++] = (byte) random.nextInt(alphabet);
+                }
+            }
+            return input;
+        }
+
+        @Test
+        @DisplayName("should compress random inputs like the lz4-java safe compressor")
+        void shouldCompressRandomInputsLikeTheLz4JavaSafeCompressor() {
+            LZ4Compressor reference = LZ4Factory.safeInstance().fastCompressor();
+            Random random = new Random(2024);
+            for(int round = 0; round < 500; round++) {
+                byte[] input = fuzzInput(random);
+
+                byte[] compressed = compressor.compress(input);
+
+                assertArrayEquals(reference.compress(input), compressed, "Round " + round);
+                assertArrayEquals(input, LZ4Factory.safeInstance().safeDecompressor().decompress(compressed, input.length));
+                assertArrayEquals(input, decompressor.decompress(compressed, input.length));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.binaryflavor.lettuce.core.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ListpackTarget")
+class ListpackTargetTest {
+
+    @Test
+    @DisplayName("should use the Redis default element size")
+    void shouldUseTheRedisDefaultElementSize() {
+        assertEquals(64, ListpackTarget.create().maxElementSize());
+    }
+
+    @Test
+    @DisplayName("should count fitting and oversized values")
+    void shouldCountFittingAndOversizedValues() {
+        ListpackTarget target = ListpackTarget.of(10);
+
+        target.record(0);
+        target.record(10);
+        target.record(11);
+
+        assertEquals(2, target.fitting());
+        assertEquals(1, target.oversized());
+    }
+
+    @Test
+    @DisplayName("should reset counters")
+    void shouldResetCounters() {
+        ListpackTarget target = ListpackTarget.of(10);
+        target.record(5);
+        target.record(50);
+
+        target.reset();
+
+        assertEquals(0, target.fitting());
+        assertEquals(0, target.oversized());
+    }
+
+    @Test
+    @DisplayName("should reject non-positive element sizes")
+    void shouldRejectNonPositiveElementSizes() {
+        assertThrows(IllegalArgumentException.class, () -> ListpackTarget.of(0));
+    }
+}
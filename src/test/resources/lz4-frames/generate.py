@@ -0,0 +1,74 @@
+#!/usr/bin/env python3
+"""Writes the golden frames of this directory with the reference LZ4 library (liblz4).
+
+Each frame is produced by LZ4F_compressFrame, the call both the lz4 command line tool (for inputs smaller than one
+block) and Python's lz4.frame.compress make, with the preferences these tools pass by default. See README.md.
+"""
+import ctypes
+import ctypes.util
+import os
+import sys
+
+
+class FrameInfo(ctypes.Structure):
+    _fields_ = [("blockSizeID", ctypes.c_int), ("blockMode", ctypes.c_int), ("contentChecksumFlag", ctypes.c_int),
+                ("frameType", ctypes.c_int), ("contentSize", ctypes.c_ulonglong), ("dictID", ctypes.c_uint),
+                ("blockChecksumFlag", ctypes.c_int)]
+
+
+class Preferences(ctypes.Structure):
+    _fields_ = [("frameInfo", FrameInfo), ("compressionLevel", ctypes.c_int), ("autoFlush", ctypes.c_uint),
+                ("favorDecSpeed", ctypes.c_uint), ("reserved", ctypes.c_uint * 3)]
+
+
+LINKED, INDEPENDENT = 0, 1
+MAX_64KB, MAX_4MB = 4, 7
+
+lib = ctypes.CDLL(ctypes.util.find_library("lz4") or "liblz4.so.1")
+lib.LZ4F_compressFrameBound.restype = ctypes.c_size_t
+lib.LZ4F_compressFrameBound.argtypes = [ctypes.c_size_t, ctypes.POINTER(Preferences)]
+lib.LZ4F_compressFrame.restype = ctypes.c_size_t
+lib.LZ4F_compressFrame.argtypes = [ctypes.c_void_p, ctypes.c_size_t, ctypes.c_char_p, ctypes.c_size_t,
+                                   ctypes.POINTER(Preferences)]
+lib.LZ4F_isError.argtypes = [ctypes.c_size_t]
+lib.LZ4_versionString.restype = ctypes.c_char_p
+
+
+def cli(data, block_checksum=False, content_size=False):
+    """lz4 [-BX] [--content-size]: level 1, 4 MiB independent blocks, content checksum."""
+    return compress(data, Preferences(FrameInfo(MAX_4MB, INDEPENDENT, 1, 0, len(data) if content_size else 0, 0,
+                                                int(block_checksum)), 1, 1))
+
+
+def python(data):
+    """lz4.frame.compress(data): level 0, 64 KiB linked blocks, content size."""
+    return compress(data, Preferences(FrameInfo(MAX_64KB, LINKED, 0, 0, len(data), 0, 0), 0, 0))
+
+
+def compress(data, preferences):
+    bound = lib.LZ4F_compressFrameBound(len(data), ctypes.byref(preferences))
+    out = ctypes.create_string_buffer(bound)
+    size = lib.LZ4F_compressFrame(out, bound, data, len(data), ctypes.byref(preferences))
+    if lib.LZ4F_isError(size):
+        sys.exit("LZ4F_compressFrame failed")
+    return out.raw[:size]
+
+
+HELLO = b"Hello, LZ4 frame!\n"
+
+FRAMES = {
+    "cli-empty.lz4": cli(b""),
+    "cli-hello.lz4": cli(HELLO),
+    "cli-a64.lz4": cli(b"a" * 64),
+    "cli-checksums.lz4": cli(HELLO, block_checksum=True, content_size=True),
+    "python-a64.lz4": python(b"a" * 64),
+    "python-linked.lz4": python(b"a" * (65536 + 32) + b"bcdef"),
+}
+
+if __name__ == "__main__":
+    directory = os.path.dirname(os.path.abspath(__file__))
+    for name, frame in FRAMES.items():
+        with open(os.path.join(directory, name), "wb") as f:
+            f.write(frame)
+        print(f"{name}: {len(frame)} bytes")
+    print(f"liblz4 {lib.LZ4_versionString().decode()}")